@@ -0,0 +1,158 @@
+package com.ms19.jourenal_apk.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+// Compares a JMH json result file with baseline.json and exits with 1 when a benchmark got
+// slower than the baseline by more than the tolerance (default 25%) and by more than the run's
+// own error bar, so a noisy run is not a regression. Scores are only comparable on the same kind
+// of machine: baseline.json names the runner it was recorded on (-Dbaseline.runner, "local" when
+// not given) and its core count. A run elsewhere only warns and exits with 0 without comparing,
+// so the check passes until a baseline recorded on that runner is committed.
+// Benchmarks missing on either side are listed, not failed. The suites in baseline.json need no
+// MongoDB, so CI can run them (.github/workflows/benchmarks.yml at the repository root):
+//
+//   java -jar target/benchmarks.jar -rf json -rff target/jmh-result.json \
+//       JwtUtilBenchmark JwtFilterBenchmark CustomUserDetailsBenchmark ResponseSerializationBenchmark
+//   java -cp target/benchmarks.jar com.ms19.jourenal_apk.benchmarks.BaselineCheck target/jmh-result.json baseline.json
+//
+// -Dbaseline.tolerance=0.10 changes the tolerance, -Dbaseline.write=true replaces baseline.json
+// with the results instead of comparing (after an intended change, or on new CI hardware; the
+// workflow does it when started by hand with record=true and uploads the file to commit).
+public class BaselineCheck {
+
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("baseline.tolerance", "0.25"));
+    private static final boolean WRITE = Boolean.getBoolean("baseline.write");
+    private static final String RUNNER = System.getProperty("baseline.runner", "local");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: BaselineCheck <jmh-result.json> <baseline.json>");
+            System.exit(2);
+        }
+        Map<String, Score> results = readJmh(new File(args[0]));
+        File baselineFile = new File(args[1]);
+        if (WRITE) {
+            writeBaseline(baselineFile, results);
+            System.out.printf("wrote %d scores to %s%n", results.size(), baselineFile);
+            return;
+        }
+        JsonNode baselineRoot = MAPPER.readTree(baselineFile);
+        String recordedOn = baselineRoot.path("runner").asText("local");
+        int recordedCores = baselineRoot.path("cores").asInt();
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (!recordedOn.equals(RUNNER) || recordedCores != cores) {
+            System.out.printf("warning: %s was recorded on %s with %d cores, this is %s with %d cores; not"
+                    + " comparing until a baseline recorded here (-Dbaseline.write=true) is committed%n",
+                    baselineFile, recordedOn, recordedCores, RUNNER, cores);
+            return;
+        }
+        Map<String, Score> baseline = readBaseline(baselineRoot);
+
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%-70s %12s %12s %8s%n", "benchmark", "baseline", "now", "change");
+        for (Map.Entry<String, Score> entry : baseline.entrySet()) {
+            Score expected = entry.getValue();
+            Score actual = results.get(entry.getKey());
+            if (actual == null) {
+                System.out.printf("%-70s %12.3f %12s %8s%n", entry.getKey(), expected.score, "-", "not run");
+                continue;
+            }
+            if (!expected.unit.equals(actual.unit)) {
+                regressions.add(entry.getKey() + ": unit changed from " + expected.unit + " to " + actual.unit);
+                continue;
+            }
+            // positive is worse: more time per op, or fewer ops per time
+            double change = expected.higherIsBetter()
+                    ? (expected.score - actual.score) / expected.score
+                    : (actual.score - expected.score) / expected.score;
+            double outsideError = expected.higherIsBetter()
+                    ? expected.score - (actual.score + actual.error)
+                    : (actual.score - actual.error) - expected.score;
+            String flag = change > TOLERANCE && outsideError > 0 ? "  REGRESSION" : "";
+            System.out.printf("%-70s %12.3f %12.3f %+7.1f%%%s%n", entry.getKey(), expected.score, actual.score,
+                    change * 100, flag);
+            if (!flag.isEmpty()) {
+                regressions.add(String.format("%s: %.3f -> %.3f %s", entry.getKey(), expected.score, actual.score,
+                        actual.unit));
+            }
+        }
+        results.keySet().stream().filter(key -> !baseline.containsKey(key))
+                .forEach(key -> System.out.printf("%-70s %12s %12.3f %8s%n", key, "-", results.get(key).score, "new"));
+
+        if (!regressions.isEmpty()) {
+            System.out.printf("%n%d benchmark(s) regressed by more than %.0f%%:%n", regressions.size(), TOLERANCE * 100);
+            regressions.forEach(line -> System.out.println("  " + line));
+            System.exit(1);
+        }
+        System.out.printf("%nno regressions beyond %.0f%%%n", TOLERANCE * 100);
+    }
+
+    // benchmark name with its @Param values, e.g. JwtFilterBenchmark.validToken:stateless=true
+    private static Map<String, Score> readJmh(File file) throws IOException {
+        Map<String, Score> res = new TreeMap<>();
+        for (JsonNode run : MAPPER.readTree(file)) {
+            String name = run.get("benchmark").asText();
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            Map<String, String> params = new TreeMap<>();
+            run.path("params").fields().forEachRemaining(p -> params.put(p.getKey(), p.getValue().asText()));
+            JsonNode metric = run.get("primaryMetric");
+            double error = metric.get("scoreError").asDouble();
+            res.put(key(name, params), new Score(run.get("mode").asText(), metric.get("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.get("scoreUnit").asText()));
+        }
+        return res;
+    }
+
+    private static Map<String, Score> readBaseline(JsonNode root) {
+        Map<String, Score> res = new LinkedHashMap<>();
+        for (JsonNode node : root.get("benchmarks")) {
+            res.put(node.get("key").asText(), new Score(node.get("mode").asText(), node.get("score").asDouble(), 0,
+                    node.get("unit").asText()));
+        }
+        return res;
+    }
+
+    private static void writeBaseline(File file, Map<String, Score> results) throws IOException {
+        ObjectNode root = MAPPER.createObjectNode();
+        root.put("runner", RUNNER);
+        root.put("jdk", System.getProperty("java.version"));
+        root.put("cores", Runtime.getRuntime().availableProcessors());
+        ArrayNode benchmarks = root.putArray("benchmarks");
+        results.forEach((key, score) -> benchmarks.addObject()
+                .put("key", key)
+                .put("mode", score.mode)
+                .put("score", Math.round(score.score * 1000) / 1000.0)
+                .put("unit", score.unit));
+        MAPPER.writeValue(file, root);
+    }
+
+    private static String key(String name, Map<String, String> params) {
+        if (params.isEmpty()) {
+            return name;
+        }
+        StringBuilder sb = new StringBuilder(name).append(':');
+        params.forEach((k, v) -> sb.append(k).append('=').append(v).append(','));
+        return sb.substring(0, sb.length() - 1);
+    }
+
+    private record Score(String mode, double score, double error, String unit) {
+
+        boolean higherIsBetter() {
+            return mode.equals("thrpt");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ms19.jourenal_apk.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.entity.userModel;
+import com.ms19.jourenal_apk.utils.JwtUtil;
+import com.ms19.jourenal_apk.utils.VerifiedToken;
+
+// The principal is built once per request in stateless mode (from the token claims) and once
+// per cache miss otherwise (from the user document). Both should stay a few small objects;
+// a jump here usually means something heavy crept back into CustomUserDetails.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomUserDetailsBenchmark {
+
+    @Param({ "1", "3" })
+    private int roles;
+
+    private userModel user;
+    private VerifiedToken token;
+    private JwtUtil jwtUtil;
+
+    @Setup
+    public void setup() {
+        List<String> roleNames = new ArrayList<>();
+        for (int i = 0; i < roles; i++) {
+            roleNames.add(i == 0 ? "USER" : "ROLE" + i);
+        }
+        user = new userModel("bench-user", "$2a$10$abcdefghijklmnopqrstuuN1bH6iBPHGj6f8Cq7Pq3bZr7r8m3vHy");
+        user.setId(new ObjectId());
+        user.setEmail("bench-user@example.com");
+        user.setRole(roleNames);
+
+        jwtUtil = new JwtUtil();
+        token = jwtUtil.verify(jwtUtil.generateToken(new CustomUserDetails(user)));
+    }
+
+    @Benchmark
+    public CustomUserDetails fromUserDocument() {
+        return new CustomUserDetails(user);
+    }
+
+    @Benchmark
+    public CustomUserDetails fromTokenClaims() {
+        return jwtUtil.toUserDetails(token);
+    }
+}
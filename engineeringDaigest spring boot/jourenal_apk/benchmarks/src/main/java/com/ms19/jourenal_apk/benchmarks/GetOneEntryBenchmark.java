@@ -0,0 +1,82 @@
+package com.ms19.jourenal_apk.benchmarks;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import com.mongodb.client.MongoClient;
+import com.ms19.jourenal_apk.Repository.JournaleEntryRepo;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+
+// Regression guard for getOneEntry: indexedLookup must stay flat as the owner's journal
+// grows from 10 to 100k entries, loadAllAndFilter is the old load-everything-then-scan
+// strategy for comparison. Needs MongoDB, see MongoBench.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class GetOneEntryBenchmark {
+
+    @Param({ "10", "1000", "100000" })
+    private int entries;
+
+    private MongoClient client;
+    private JournaleEntryRepo repo;
+    private ObjectId ownerId;
+    private ObjectId[] entryIds;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        client = MongoBench.client();
+        MongoTemplate template = MongoBench.template(client);
+        MongoBench.ensureIndexes(template);
+        ownerId = new ObjectId(String.format("%024x", 0x0e0e0000L + entries));
+        MongoBench.seedOwner(template, ownerId, entries, entries);
+
+        Query ids = new Query(Criteria.where("ownerId").is(ownerId));
+        ids.fields().include("_id");
+        entryIds = template.find(ids, journalEntryModel.class).stream().map(journalEntryModel::getId)
+                .toArray(ObjectId[]::new);
+        repo = MongoBench.repository(template, JournaleEntryRepo.class);
+        random = new SplittableRandom(7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public Optional<journalEntryModel> indexedLookup() {
+        return repo.findByIdAndOwnerId(entryIds[random.nextInt(entryIds.length)], ownerId);
+    }
+
+    @Benchmark
+    public Optional<journalEntryModel> loadAllAndFilter() {
+        ObjectId id = entryIds[random.nextInt(entryIds.length)];
+        List<journalEntryModel> all = repo.findByOwnerIdOrderByCreatedAtDesc(ownerId);
+        return all.stream().filter(entry -> entry.getId().equals(id)).findFirst();
+    }
+}
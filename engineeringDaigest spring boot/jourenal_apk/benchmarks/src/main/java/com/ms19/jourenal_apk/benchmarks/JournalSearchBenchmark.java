@@ -0,0 +1,95 @@
+package com.ms19.jourenal_apk.benchmarks;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+
+import com.mongodb.client.MongoClient;
+import com.ms19.jourenal_apk.Repository.JournaleEntryRepo;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.utils.SearchWords;
+
+// Search latency over a generated corpus of `owners` x `entriesPerOwner` entries
+// (1M by default). Needs MongoDB, see MongoBench. The first run seeds the data and
+// takes a while, later runs reuse it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JournalSearchBenchmark {
+
+    @Param({ "100" })
+    private int owners;
+
+    @Param({ "10000" })
+    private int entriesPerOwner;
+
+    private MongoClient client;
+    private MongoTemplate template;
+    private JournaleEntryRepo repo;
+    private ObjectId[] ownerIds;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        client = MongoBench.client();
+        template = MongoBench.template(client);
+        MongoBench.ensureIndexes(template);
+        ownerIds = new ObjectId[owners];
+        for (int i = 0; i < owners; i++) {
+            // stable ids so the corpus is reused between runs
+            ownerIds[i] = new ObjectId(String.format("%024x", 0x5eed0000L + i));
+            MongoBench.seedOwner(template, ownerIds[i], entriesPerOwner, i);
+        }
+        repo = MongoBench.repository(template, JournaleEntryRepo.class);
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public List<journalEntryModel> rankedTextSearch() {
+        String q = MongoBench.word(random) + " " + MongoBench.word(random);
+        return repo.findByOwnerIdOrderByScoreDesc(ownerIds[random.nextInt(owners)],
+                TextCriteria.forDefaultLanguage().matching(q), PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public List<journalEntryModel> rankedTextSearchDeepPage() {
+        return repo.findByOwnerIdOrderByScoreDesc(ownerIds[random.nextInt(owners)],
+                TextCriteria.forDefaultLanguage().matching(MongoBench.word(random)), PageRequest.of(10, 20));
+    }
+
+    @Benchmark
+    public List<journalEntryModel> prefixSearch() {
+        String prefix = MongoBench.word(random).substring(0, 3);
+        Query query = new Query(SearchWords.prefixCriteria(ownerIds[random.nextInt(owners)], prefix))
+                .with(PageRequest.of(0, 20)).with(Sort.by(Sort.Direction.DESC, "createdAt"));
+        return template.find(query, journalEntryModel.class);
+    }
+}
@@ -0,0 +1,140 @@
+package com.ms19.jourenal_apk.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.DirectFieldAccessor;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.Security.TokenRevocationList;
+import com.ms19.jourenal_apk.Services.UserDetailServiceImpl;
+import com.ms19.jourenal_apk.filter.JwtFilter;
+import com.ms19.jourenal_apk.filter.JwtFilterMetrics;
+import com.ms19.jourenal_apk.utils.JwtUtil;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+
+// What JwtFilter adds to every authenticated request, without Spring or Mongo: the real
+// JwtUtil, revocation list and metrics, and a user details service that answers from memory
+// like a warm principal cache. `stateless` trusts the roles in the token, stateful loads the
+// principal by name. The invalid token and no header cases are the cheap ways out.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    @Param({ "true", "false" })
+    private boolean stateless;
+
+    private JwtFilter filter;
+    private MockHttpServletRequest validRequest;
+    private MockHttpServletRequest invalidRequest;
+    private MockHttpServletRequest anonymousRequest;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        JwtUtil jwtUtil = new JwtUtil();
+        CustomUserDetails user = new CustomUserDetails(new ObjectId(), "bench-user", List.of("USER"), 0);
+
+        TokenRevocationList revocationList = new TokenRevocationList();
+        new DirectFieldAccessor(revocationList).setPropertyValue("expectedInsertions", 100_000);
+        new DirectFieldAccessor(revocationList).setPropertyValue("fpp", 0.01);
+        revocationList.init();
+
+        JwtFilterMetrics metrics = new JwtFilterMetrics();
+        new DirectFieldAccessor(metrics).setPropertyValue("meterRegistry", new SimpleMeterRegistry());
+        metrics.init();
+
+        filter = new JwtFilter();
+        DirectFieldAccessor fields = new DirectFieldAccessor(filter);
+        fields.setPropertyValue("jwtUtil", jwtUtil);
+        fields.setPropertyValue("userDetailsService", new InMemoryUserDetails(user));
+        fields.setPropertyValue("tokenRevocationList", revocationList);
+        fields.setPropertyValue("jwtFilterMetrics", metrics);
+        fields.setPropertyValue("stateless", stateless);
+
+        String token = jwtUtil.generateToken(user, "bench-jti");
+        validRequest = request("Bearer " + token);
+        invalidRequest = request("Bearer " + token.substring(0, token.length() - 4) + "AAAA");
+        anonymousRequest = request(null);
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public Object validToken() throws ServletException, IOException {
+        return run(validRequest);
+    }
+
+    @Benchmark
+    public Object invalidSignature() throws ServletException, IOException {
+        return run(invalidRequest);
+    }
+
+    @Benchmark
+    public Object noAuthorizationHeader() throws ServletException, IOException {
+        return run(anonymousRequest);
+    }
+
+    private Object run(MockHttpServletRequest request) throws ServletException, IOException {
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        // OncePerRequestFilter marks the request as filtered
+        request.clearAttributes();
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private static MockHttpServletRequest request(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/journal/greet");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        return request;
+    }
+
+    // the principal cache after warm up, without the Mongo behind it
+    private static final class InMemoryUserDetails extends UserDetailServiceImpl {
+
+        private final CustomUserDetails user;
+
+        InMemoryUserDetails(CustomUserDetails user) {
+            this.user = user;
+        }
+
+        @Override
+        public UserDetails loadUserByUsername(String username) {
+            return user;
+        }
+
+        @Override
+        public int currentTokenVersion(String username) {
+            return user.getTokenVersion();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ms19.jourenal_apk.benchmarks;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.utils.JwtUtil;
+import com.ms19.jourenal_apk.utils.VerifiedToken;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+// per request cost of JWT handling: the old path rebuilt the key and parser and
+// parsed the token twice, JwtUtil.verify parses once with a shared parser
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET_KEY = "aVeryLongSecretKeyThatIsAtLeast256BitsLongAndSecure";
+
+    private JwtUtil jwtUtil;
+    private CustomUserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        userDetails = new CustomUserDetails(new ObjectId(), "bench-user", List.of("USER"), 0);
+        token = jwtUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyOnce() {
+        return jwtUtil.verify(token);
+    }
+
+    // what JwtFilter used to do: extractUsername, then validateToken -> extractExpiration
+    @Benchmark
+    public void legacyParseTwice(Blackhole bh) {
+        bh.consume(legacyParse(token).getSubject());
+        bh.consume(legacyParse(token).getExpiration().before(new Date()));
+    }
+
+    private static io.jsonwebtoken.Claims legacyParse(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+}
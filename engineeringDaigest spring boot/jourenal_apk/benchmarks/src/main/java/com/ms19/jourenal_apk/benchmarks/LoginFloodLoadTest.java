@@ -0,0 +1,259 @@
+package com.ms19.jourenal_apk.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.mongodb.client.MongoClient;
+import com.ms19.jourenal_apk.JourenalApkApplication;
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.utils.JwtUtil;
+
+// Credential stuffing against POST /api/v1/login, once with the login throttle off and once
+// with it on. Attackers send logins for a list of mostly unknown usernames and wrong passwords
+// for real ones as fast as they are answered. At the same time real users log in at a slow
+// pace and a client keeps calling an authenticated endpoint (/journal/greet, no Mongo), and
+// the table shows what the flood does to their latency. All clients come from 127.0.0.1, so
+// the per-ip limit is off here; the username buckets and the unknown user cache do the work.
+// Needs a MongoDB (same -Dmongo.uri as the Mongo benchmarks).
+//
+//   java -Dloadtest.attackers=64 -cp target/benchmarks.jar com.ms19.jourenal_apk.benchmarks.LoginFloodLoadTest
+public class LoginFloodLoadTest {
+
+    private static final String MODE = System.getProperty("loadtest.mode", "both");
+    private static final int ATTACKERS = Integer.getInteger("loadtest.attackers", 64);
+    private static final int UNKNOWN_NAMES = Integer.getInteger("loadtest.unknown-names", 2000);
+    private static final int REAL_USERS = Integer.getInteger("loadtest.real-users", 200);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 30);
+    private static final int LEGIT_LOGINS_PER_SECOND = Integer.getInteger("loadtest.legit-logins-per-second", 5);
+    private static final int BCRYPT_STRENGTH = 10;
+    private static final String USER_PREFIX = "loadtest-login-";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        seedUsers();
+
+        Map<String, Map<String, Result>> results = new LinkedHashMap<>();
+        if (!MODE.equals("protected")) {
+            results.put("unprotected", run(false));
+        }
+        if (!MODE.equals("unprotected")) {
+            results.put("protected", run(true));
+        }
+
+        System.out.printf("%nattackers=%d unknown-names=%d real-users=%d legit-logins=%d/s duration=%ds cores=%d%n",
+                ATTACKERS, UNKNOWN_NAMES, REAL_USERS, LEGIT_LOGINS_PER_SECOND, DURATION_SECONDS,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-12s %-14s %10s %10s %10s %10s %8s%n", "throttle", "traffic", "req/s", "p50 ms",
+                "p99 ms", "max ms", "ok");
+        results.forEach((mode, byTraffic) -> byTraffic.forEach((traffic, r) -> System.out.printf(
+                "%-12s %-14s %10.1f %10.2f %10.2f %10.2f %8d%n",
+                mode, traffic, r.throughput, r.p50Ms, r.p99Ms, r.maxMs, r.ok)));
+    }
+
+    private static void seedUsers() {
+        try (MongoClient client = MongoBench.client()) {
+            MongoTemplate template = MongoBench.template(client);
+            template.remove(new Query(Criteria.where("userName").regex("^" + USER_PREFIX)), "users");
+            String hash = new BCryptPasswordEncoder(BCRYPT_STRENGTH).encode(PASSWORD);
+            List<Document> users = new ArrayList<>(REAL_USERS);
+            for (int i = 0; i < REAL_USERS; i++) {
+                users.add(new Document("userName", USER_PREFIX + i)
+                        .append("password", hash)
+                        .append("Role", List.of("USER"))
+                        .append("tokenVersion", 0));
+            }
+            template.getCollection("users").insertMany(users);
+        }
+    }
+
+    private static Map<String, Result> run(boolean throttled) throws Exception {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.data.mongodb.uri", MongoBench.URI);
+        properties.put("journal.security.login.throttle.enabled", throttled);
+        properties.put("journal.security.login.throttle.ip-per-minute", 0);
+        properties.put("journal.security.bcrypt.strength", BCRYPT_STRENGTH);
+        properties.put("journal.security.jwt.stateless", true);
+        properties.put("journal.migration.owner.enabled", false);
+        properties.put("journal.digest.enabled", false);
+        properties.put("journal.reaper.enabled", false);
+        properties.put("WEATHER_API_KEY", "loadtest");
+        properties.put("spring.mail.host", "localhost");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.ms19", "OFF");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(JourenalApkApplication.class)
+                .properties(properties)
+                .run()) {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1";
+            String token = context.getBean(JwtUtil.class)
+                    .generateToken(new CustomUserDetails(new ObjectId(), "loadtest", List.of("USER"), 0));
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            // two of three attacks use a name from the list, the rest guess passwords for real users
+            IntFunction<HttpRequest> attack = n -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                String userName = random.nextInt(3) < 2 ? "ghost-" + random.nextInt(UNKNOWN_NAMES)
+                        : USER_PREFIX + random.nextInt(REAL_USERS);
+                return login(base, userName, "guess-" + random.nextLong());
+            };
+            AtomicInteger nextUser = new AtomicInteger();
+            IntFunction<HttpRequest> legitLogin = n -> login(base,
+                    USER_PREFIX + Math.floorMod(nextUser.getAndIncrement(), REAL_USERS), PASSWORD);
+            HttpRequest greet = HttpRequest.newBuilder(URI.create(base + "/journal/greet"))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+
+            String mode = throttled ? "protected" : "unprotected";
+            System.out.printf("%s: warming up for %ds%n", mode, WARMUP_SECONDS);
+            drive(http, attack, legitLogin, greet, WARMUP_SECONDS);
+            System.out.printf("%s: measuring for %ds%n", mode, DURATION_SECONDS);
+            return drive(http, attack, legitLogin, greet, DURATION_SECONDS);
+        }
+    }
+
+    private static HttpRequest login(String base, String userName, String password) {
+        return HttpRequest.newBuilder(URI.create(base + "/login"))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"userName\":\"" + userName + "\",\"password\":\"" + password + "\"}"))
+                .build();
+    }
+
+    private static Map<String, Result> drive(HttpClient http, IntFunction<HttpRequest> attack,
+            IntFunction<HttpRequest> legitLogin, HttpRequest greet, int seconds) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        Recorder attacks = new Recorder();
+        Recorder logins = new Recorder();
+        Recorder greets = new Recorder();
+        CountDownLatch done = new CountDownLatch(ATTACKERS + 2);
+
+        for (int i = 0; i < ATTACKERS; i++) {
+            start("attacker-" + i, done, () -> {
+                int n = 0;
+                while (System.nanoTime() < deadline) {
+                    attacks.send(http, attack.apply(n++), null);
+                }
+            });
+        }
+        // open loop: real users do not log in faster because the server is busy
+        long loginIntervalNanos = 1_000_000_000L / Math.max(1, LEGIT_LOGINS_PER_SECOND);
+        start("legit-login", done, () -> {
+            int n = 0;
+            long next = System.nanoTime();
+            while (next < deadline) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+                logins.send(http, legitLogin.apply(n++), "\"success\":true");
+                next += loginIntervalNanos;
+            }
+        });
+        start("greet", done, () -> {
+            while (System.nanoTime() < deadline) {
+                greets.send(http, greet, null);
+                Thread.sleep(10);
+            }
+        });
+        done.await();
+
+        Map<String, Result> res = new LinkedHashMap<>();
+        res.put("attack", attacks.result(seconds));
+        res.put("legit login", logins.result(seconds));
+        res.put("greet", greets.result(seconds));
+        return res;
+    }
+
+    private interface Body {
+        void run() throws InterruptedException;
+    }
+
+    private static void start(String name, CountDownLatch done, Body body) {
+        Thread t = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // latencies of one kind of traffic; `okMarker` is a string the body must contain to count as ok
+    private static final class Recorder {
+
+        private final List<Long> latencies = new ArrayList<>();
+        private final AtomicLong ok = new AtomicLong();
+
+        void send(HttpClient http, HttpRequest request, String okMarker) throws InterruptedException {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200 && (okMarker == null || response.body().contains(okMarker))) {
+                    ok.incrementAndGet();
+                }
+            } catch (IOException e) {
+                // counted in the latency, not as ok
+            }
+            long elapsed = System.nanoTime() - start;
+            synchronized (latencies) {
+                latencies.add(elapsed);
+            }
+        }
+
+        Result result(int seconds) {
+            long[] sorted;
+            synchronized (latencies) {
+                sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+            }
+            Arrays.sort(sorted);
+            return new Result((double) sorted.length / seconds, percentileMs(sorted, 0.50),
+                    percentileMs(sorted, 0.99), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6, ok.get());
+        }
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private record Result(double throughput, double p50Ms, double p99Ms, double maxMs, long ok) {
+    }
+}
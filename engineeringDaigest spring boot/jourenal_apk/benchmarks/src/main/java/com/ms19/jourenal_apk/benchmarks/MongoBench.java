@@ -0,0 +1,100 @@
+package com.ms19.jourenal_apk.benchmarks;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.ms19.jourenal_apk.config.MongoIndexConfig;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.utils.SearchWords;
+
+// Shared setup for the benchmarks that need a real MongoDB. Point them at a scratch
+// database with -jvmArgsAppend -Dmongo.uri=mongodb://host:27017/journal_bench
+final class MongoBench {
+
+    static final String URI = System.getProperty("mongo.uri", "mongodb://localhost:27017/journal_bench");
+
+    private static final String[] WORDS = ("morning coffee walk rain sunny office meeting project deadline family "
+            + "dinner movie book reading running gym travel train airport holiday beach mountain friend birthday "
+            + "music concert garden cooking recipe weekend sleep dream work code bug release deploy spring java "
+            + "mongo journal happy tired anxious calm grateful idea plan goal habit learning lecture exam").split(" ");
+
+    private MongoBench() {
+    }
+
+    static MongoClient client() {
+        return MongoClients.create(URI);
+    }
+
+    static MongoTemplate template(MongoClient client) {
+        String db = URI.substring(URI.lastIndexOf('/') + 1).split("\\?")[0];
+        return new MongoTemplate(client, db.isEmpty() ? "journal_bench" : db);
+    }
+
+    static <T> T repository(MongoTemplate template, Class<T> repoType) {
+        return new MongoRepositoryFactory(template).getRepository(repoType);
+    }
+
+    // makes sure owner has exactly `count` entries, reusing what an earlier run generated
+    static void seedOwner(MongoTemplate template, ObjectId ownerId, int count, long seed) {
+        Query mine = new Query(Criteria.where("ownerId").is(ownerId));
+        // a corpus from before the search words is generated again
+        long existing = template.count(new Query(Criteria.where("ownerId").is(ownerId)
+                .and(SearchWords.TITLE_FIELD).exists(true)), journalEntryModel.class);
+        if (existing == count && template.count(mine, journalEntryModel.class) == count) {
+            return;
+        }
+        template.remove(mine, journalEntryModel.class);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        List<journalEntryModel> batch = new ArrayList<>(10_000);
+        LocalDateTime start = LocalDateTime.now().minusYears(3);
+        for (int i = 0; i < count; i++) {
+            journalEntryModel entry = new journalEntryModel();
+            entry.setOwnerId(ownerId);
+            entry.setOwnerName("bench-" + ownerId.toHexString());
+            entry.setTitle(sentence(random, 3 + random.nextInt(5)));
+            entry.setContent(sentence(random, 40 + random.nextInt(120)));
+            entry.setCreatedAt(start.plusMinutes(i));
+            SearchWords.fill(entry);
+            batch.add(entry);
+            if (batch.size() == 10_000) {
+                template.insert(batch, journalEntryModel.class);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            template.insert(batch, journalEntryModel.class);
+        }
+    }
+
+    static void ensureIndexes(MongoTemplate template) {
+        MongoIndexConfig.ensureJournalIndexes(template);
+    }
+
+    static String word(SplittableRandom random) {
+        // skewed towards the first words so some terms are common and some rare
+        double r = random.nextDouble();
+        return WORDS[(int) (r * r * WORDS.length)];
+    }
+
+    private static String sentence(SplittableRandom random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(word(random));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.ms19.jourenal_apk.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.ms19.jourenal_apk.Response.Response;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+
+// Writing the Response wrapper around a list of journal entries, as getJournalEntriesByUserName
+// returns it. The mapper is built like Spring Boot's. `toStream` is what the message converter
+// does (straight into the response body), `toBytes` also buffers the whole document first.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    private int entries;
+
+    @Param({ "500" })
+    private int contentLength;
+
+    private ObjectWriter writer;
+    private Response response;
+    private OutputStream sink;
+
+    @Setup
+    public void setup(Blackhole bh) {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = mapper.writerFor(Response.class);
+
+        SplittableRandom random = new SplittableRandom(11);
+        ObjectId ownerId = new ObjectId();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 8, 0);
+        List<journalEntryModel> list = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            journalEntryModel entry = new journalEntryModel();
+            entry.setId(new ObjectId());
+            entry.setTitle("entry " + i);
+            entry.setContent(text(random, contentLength));
+            entry.setOwnerId(ownerId);
+            entry.setOwnerName("bench-user");
+            entry.setCreatedAt(start.plusMinutes(i));
+            entry.setUpdatedAt(start.plusMinutes(i + 5));
+            entry.setVersion((long) random.nextInt(5));
+            list.add(entry);
+        }
+        response = new Response(200, true, "journal entry fechted succefully", null, list);
+        sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bh.consume(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bh.consume(b);
+            }
+        };
+    }
+
+    @Benchmark
+    public byte[] toBytes() throws IOException {
+        return writer.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public void toStream() throws IOException {
+        writer.writeValue(sink, response);
+    }
+
+    private static String text(SplittableRandom random, int length) {
+        String words = "the quick brown fox jumps over a lazy dog while writing in a journal today ";
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            int from = random.nextInt(words.length() - 10);
+            sb.append(words, from, from + 10);
+        }
+        return sb.substring(0, length);
+    }
+}
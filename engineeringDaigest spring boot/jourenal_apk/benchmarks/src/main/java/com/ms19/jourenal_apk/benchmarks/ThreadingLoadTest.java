@@ -0,0 +1,261 @@
+package com.ms19.jourenal_apk.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.types.ObjectId;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.mongodb.client.MongoClient;
+import com.ms19.jourenal_apk.JourenalApkApplication;
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.utils.JwtUtil;
+
+// Closed-loop load test of GET /api/v1/journal/entries with platform and with virtual request
+// threads. The app talks to Mongo through a local proxy that holds every client->server packet
+// for upstream-delay-ms, so each request blocks on a slow upstream like it would on a remote
+// or overloaded database. Needs a MongoDB (same -Dmongo.uri as the Mongo benchmarks) and Java 21
+// for the virtual run, on Java 17 both runs use platform threads.
+//
+//   java -Dloadtest.concurrency=400 -cp target/benchmarks.jar com.ms19.jourenal_apk.benchmarks.ThreadingLoadTest
+public class ThreadingLoadTest {
+
+    private static final String MODE = System.getProperty("loadtest.mode", "both");
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 400);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 30);
+    private static final int UPSTREAM_DELAY_MS = Integer.getInteger("loadtest.upstream-delay-ms", 50);
+    private static final int TOMCAT_THREADS = Integer.getInteger("loadtest.tomcat-threads", 200);
+    private static final int MONGO_POOL_SIZE = Integer.getInteger("loadtest.mongo-pool-size", 1000);
+
+    public static void main(String[] args) throws Exception {
+        // devtools comes with the app jar, its restarter would run the app in a second classloader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        if (Runtime.version().feature() < 21 && !MODE.equals("platform")) {
+            System.out.println("WARNING: Java " + Runtime.version().feature()
+                    + " has no virtual threads, the virtual run falls back to platform threads");
+        }
+
+        ObjectId ownerId = new ObjectId("64b000000000000000000001");
+        try (MongoClient client = MongoBench.client()) {
+            MongoTemplate template = MongoBench.template(client);
+            MongoBench.ensureIndexes(template);
+            MongoBench.seedOwner(template, ownerId, 200, 42);
+        }
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        try (SlowProxy proxy = new SlowProxy(mongoAddress(), UPSTREAM_DELAY_MS)) {
+            if (!MODE.equals("virtual")) {
+                results.put("platform", run(false, proxy, ownerId));
+            }
+            if (!MODE.equals("platform")) {
+                results.put("virtual", run(true, proxy, ownerId));
+            }
+        }
+
+        System.out.printf("%nconcurrency=%d upstream-delay=%dms tomcat-threads=%d duration=%ds%n",
+                CONCURRENCY, UPSTREAM_DELAY_MS, TOMCAT_THREADS, DURATION_SECONDS);
+        System.out.printf("%-10s %12s %10s %10s %10s %8s%n", "threads", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        results.forEach((mode, r) -> System.out.printf("%-10s %12.1f %10.1f %10.1f %10.1f %8d%n",
+                mode, r.throughput, r.p50Ms, r.p99Ms, r.maxMs, r.errors));
+    }
+
+    private static Result run(boolean virtual, SlowProxy proxy, ObjectId ownerId) throws Exception {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.threads.virtual.enabled", virtual);
+        properties.put("server.tomcat.threads.max", TOMCAT_THREADS);
+        properties.put("spring.data.mongodb.uri", "mongodb://127.0.0.1:" + proxy.port() + "/" + database()
+                + "?directConnection=true&maxPoolSize=" + MONGO_POOL_SIZE);
+        // authentication comes from the token alone, the only Mongo call is the entries query
+        properties.put("journal.security.jwt.stateless", true);
+        properties.put("journal.migration.owner.enabled", false);
+        properties.put("journal.digest.enabled", false);
+        properties.put("journal.reaper.enabled", false);
+        properties.put("WEATHER_API_KEY", "loadtest");
+        properties.put("spring.mail.host", "localhost");
+        properties.put("logging.level.root", "WARN");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(JourenalApkApplication.class)
+                .properties(properties)
+                .run()) {
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            String token = context.getBean(JwtUtil.class)
+                    .generateToken(new CustomUserDetails(ownerId, "loadtest", List.of("USER"), 0));
+            URI uri = URI.create("http://localhost:" + port + "/api/v1/journal/entries?limit=20");
+
+            System.out.printf("%s threads: warming up for %ds%n", virtual ? "virtual" : "platform", WARMUP_SECONDS);
+            drive(uri, token, WARMUP_SECONDS);
+            System.out.printf("%s threads: measuring for %ds%n", virtual ? "virtual" : "platform", DURATION_SECONDS);
+            return drive(uri, token, DURATION_SECONDS);
+        }
+    }
+
+    // CONCURRENCY clients, each sends its next request as soon as the previous one is answered
+    private static Result drive(URI uri, String token, int seconds) throws InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        List<long[]> latencies = new ArrayList<>(CONCURRENCY);
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            long[][] own = { new long[1024] };
+            int[] count = { 0 };
+            Thread worker = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count[0] == own[0].length) {
+                            own[0] = Arrays.copyOf(own[0], own[0].length * 2);
+                        }
+                        own[0][count[0]++] = System.nanoTime() - start;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    synchronized (latencies) {
+                        latencies.add(Arrays.copyOf(own[0], count[0]));
+                    }
+                    done.countDown();
+                }
+            }, "load-client-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result((double) all.length / seconds, percentileMs(all, 0.50), percentileMs(all, 0.99),
+                all.length == 0 ? 0 : all[all.length - 1] / 1e6, errors.get());
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private static InetSocketAddress mongoAddress() {
+        String hostPart = MongoBench.URI.substring("mongodb://".length()).split("[/?]")[0];
+        hostPart = hostPart.substring(hostPart.lastIndexOf('@') + 1).split(",")[0];
+        int colon = hostPart.lastIndexOf(':');
+        return colon < 0 ? new InetSocketAddress(hostPart, 27017)
+                : new InetSocketAddress(hostPart.substring(0, colon), Integer.parseInt(hostPart.substring(colon + 1)));
+    }
+
+    private static String database() {
+        String db = MongoBench.URI.substring(MongoBench.URI.lastIndexOf('/') + 1).split("\\?")[0];
+        return db.isEmpty() ? "journal_bench" : db;
+    }
+
+    private record Result(double throughput, double p50Ms, double p99Ms, double maxMs, long errors) {
+    }
+
+    // TCP proxy in front of Mongo; every read from the app is held for delayMs before it is
+    // forwarded, responses pass straight through
+    private static final class SlowProxy implements AutoCloseable {
+
+        private final ServerSocket server;
+        private final InetSocketAddress target;
+        private final int delayMs;
+
+        SlowProxy(InetSocketAddress target, int delayMs) throws IOException {
+            this.server = new ServerSocket(0);
+            this.target = target;
+            this.delayMs = delayMs;
+            Thread acceptor = new Thread(this::acceptLoop, "slow-proxy-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!server.isClosed()) {
+                try {
+                    Socket app = server.accept();
+                    Socket mongo = new Socket(target.getHostString(), target.getPort());
+                    app.setTcpNoDelay(true);
+                    mongo.setTcpNoDelay(true);
+                    pump(app, mongo, delayMs);
+                    pump(mongo, app, 0);
+                } catch (IOException e) {
+                    if (!server.isClosed()) {
+                        System.err.println("slow proxy: " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        private static void pump(Socket from, Socket to, int delayMs) {
+            Thread t = new Thread(() -> {
+                byte[] buffer = new byte[64 * 1024];
+                try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        if (delayMs > 0) {
+                            Thread.sleep(delayMs);
+                        }
+                        out.write(buffer, 0, n);
+                        out.flush();
+                    }
+                } catch (IOException | InterruptedException e) {
+                    // connection closed by either side
+                } finally {
+                    try {
+                        from.close();
+                        to.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }, "slow-proxy-pump");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+}
@@ -1,15 +1,25 @@
 package com.ms19.jourenal_apk;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.mongodb.MongoDatabaseFactory;
 import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.client.RestTemplate;
 
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+
 @SpringBootApplication
 @EnableTransactionManagement
 @EnableScheduling
@@ -19,13 +29,27 @@ public class JourenalApkApplication {
 		SpringApplication.run(JourenalApkApplication.class, args);
 	}
 
+	// transactions always read from the primary with majority read and write concern, whatever
+	// read preference the client or the read-only template use
 	@Bean
 	public PlatformTransactionManager add(MongoDatabaseFactory dbFactory) {
-		return new MongoTransactionManager(dbFactory);
+		return new MongoTransactionManager(dbFactory, TransactionOptions.builder()
+				.readPreference(ReadPreference.primary())
+				.readConcern(ReadConcern.MAJORITY)
+				.writeConcern(WriteConcern.MAJORITY)
+				.build());
+	}
+
+	// the JDK HttpClient keeps a pool of keep-alive connections, both timeouts are bounded
+	@Bean
+	public RestTemplate restTemplate(@Value("${http.client.connect-timeout-ms:2000}") long connectTimeoutMs,
+			@Value("${http.client.read-timeout-ms:3000}") long readTimeoutMs) {
+		HttpClient httpClient = HttpClient.newBuilder()
+				.connectTimeout(Duration.ofMillis(connectTimeoutMs))
+				.build();
+		JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+		requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+		return new RestTemplate(requestFactory);
 	}
-	 @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
 
 }
@@ -1,10 +1,44 @@
 package com.ms19.jourenal_apk.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
 import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 
 import com.ms19.jourenal_apk.entity.journalEntryModel;
 
 public interface JournaleEntryRepo extends MongoRepository<journalEntryModel, ObjectId>  {
-    
+
+    // first page of a user's entries, newest first (served by owner_id_idx)
+    List<journalEntryModel> findByOwnerIdOrderByIdDesc(ObjectId ownerId, Pageable pageable);
+
+    // next page after the given cursor id
+    List<journalEntryModel> findByOwnerIdAndIdLessThanOrderByIdDesc(ObjectId ownerId, ObjectId cursor, Pageable pageable);
+
+    List<journalEntryModel> findByOwnerIdOrderByCreatedAtDesc(ObjectId ownerId);
+
+    // titles of what a user wrote since the given time, for the weekly digest
+    @Query(value = "{ 'ownerId' : ?0, 'createdAt' : { '$gte' : ?1 } }", fields = "{ 'title' : 1, 'createdAt' : 1 }",
+            sort = "{ 'createdAt' : -1 }")
+    List<journalEntryModel> findTitlesSince(ObjectId ownerId, LocalDateTime since);
+
+    // full text search in one owner's entries, best match first (owner_text_idx)
+    List<journalEntryModel> findByOwnerIdOrderByScoreDesc(ObjectId ownerId, TextCriteria criteria, Pageable pageable);
+
+    // one entry by primary key, only when it belongs to the owner
+    Optional<journalEntryModel> findByIdAndOwnerId(ObjectId id, ObjectId ownerId);
+
+    // single document delete, only matches when the entry belongs to the owner
+    journalEntryModel deleteByIdAndOwnerId(ObjectId id, ObjectId ownerId);
+
+    // keeps the denormalized owner name in step when a user is renamed
+    @Query("{ 'ownerId' : ?0 }")
+    @Update("{ '$set' : { 'ownerName' : ?1 } }")
+    long updateOwnerName(ObjectId ownerId, String ownerName);
 }
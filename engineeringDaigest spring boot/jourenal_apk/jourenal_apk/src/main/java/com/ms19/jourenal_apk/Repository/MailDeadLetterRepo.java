@@ -0,0 +1,10 @@
+package com.ms19.jourenal_apk.Repository;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.ms19.jourenal_apk.entity.mailDeadLetterModel;
+
+public interface MailDeadLetterRepo extends MongoRepository<mailDeadLetterModel, ObjectId> {
+
+}
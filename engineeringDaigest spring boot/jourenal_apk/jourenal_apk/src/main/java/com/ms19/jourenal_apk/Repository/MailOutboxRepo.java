@@ -0,0 +1,9 @@
+package com.ms19.jourenal_apk.Repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.ms19.jourenal_apk.entity.outboxMailModel;
+
+public interface MailOutboxRepo extends MongoRepository<outboxMailModel, String> {
+
+}
@@ -0,0 +1,30 @@
+package com.ms19.jourenal_apk.Repository;
+
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// non-blocking counterpart of JournaleEntryRepo for the reactive profile, same queries and indexes
+@Profile("reactive")
+public interface ReactiveJournalEntryRepo extends ReactiveMongoRepository<journalEntryModel, ObjectId> {
+
+    Flux<journalEntryModel> findByOwnerIdOrderByIdDesc(ObjectId ownerId, Pageable pageable);
+
+    Flux<journalEntryModel> findByOwnerIdAndIdLessThanOrderByIdDesc(ObjectId ownerId, ObjectId cursor, Pageable pageable);
+
+    // emitted as the cursor is read, nothing is collected in memory
+    Flux<journalEntryModel> findByOwnerIdOrderByCreatedAtDesc(ObjectId ownerId);
+
+    Flux<journalEntryModel> findByOwnerIdOrderByScoreDesc(ObjectId ownerId, TextCriteria criteria, Pageable pageable);
+
+    Mono<journalEntryModel> findByIdAndOwnerId(ObjectId id, ObjectId ownerId);
+
+    Mono<journalEntryModel> deleteByIdAndOwnerId(ObjectId id, ObjectId ownerId);
+}
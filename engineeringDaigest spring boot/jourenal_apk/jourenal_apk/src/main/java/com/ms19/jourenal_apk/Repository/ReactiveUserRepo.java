@@ -0,0 +1,28 @@
+package com.ms19.jourenal_apk.Repository;
+
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.mongodb.repository.Update;
+
+import com.ms19.jourenal_apk.entity.userModel;
+
+import reactor.core.publisher.Mono;
+
+// non-blocking counterpart of UserRepo for the reactive profile
+@Profile("reactive")
+public interface ReactiveUserRepo extends ReactiveMongoRepository<userModel, ObjectId> {
+
+    Mono<userModel> deleteByuserName(String userName);
+
+    @Query(value = "{ 'userName' : ?0 }", fields = "{ '_id' : 1 }")
+    Mono<userModel> findIdByuserName(String userName);
+
+    @Query(value = "{ 'userName' : ?0 }", fields = "{ 'userName' : 1, 'password' : 1, 'email' : 1, 'Role' : 1, 'tokenVersion' : 1 }")
+    Mono<userModel> findAuthByuserName(String userName);
+
+    @Query("{ 'userName' : ?0 }")
+    @Update("{ '$set' : { 'password' : ?1 } }")
+    Mono<Long> updatePasswordByuserName(String userName, String password);
+}
@@ -1,13 +1,20 @@
 package com.ms19.jourenal_apk.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Component;
 
+import com.ms19.jourenal_apk.config.ReadOnlyMongo;
 import com.ms19.jourenal_apk.entity.userModel;
 
 @Component
@@ -16,6 +23,9 @@ public class UserMongoTempletRepo {
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    @Autowired
+    private ReadOnlyMongo readOnlyMongo;
+
     public List<userModel> getUserThatHasEmail(String email) {
         Query query = new Query();
         query.addCriteria(Criteria.where("email").is(email));
@@ -24,4 +34,26 @@ public class UserMongoTempletRepo {
 
         return users;
     }
+
+    // walks users that have an email with a server side cursor, in _id order so a
+    // caller can checkpoint the last id and resume after it; close the stream when done
+    public Stream<userModel> streamUsersWithEmail(ObjectId afterId) {
+        Criteria criteria = Criteria.where("email").exists(true).nin(null, "");
+        if (afterId != null) {
+            criteria = criteria.and("_id").gt(afterId);
+        }
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(500);
+        query.fields().include("_id", "userName", "email");
+
+        return readOnlyMongo.template().stream(query, userModel.class);
+    }
+
+    // raw documents with only the requested fields, for exports that write them out one by one
+    public Stream<Document> streamUsers(Collection<String> fields) {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(500);
+        query.fields().include(fields.toArray(new String[0]));
+
+        // long scans for exports, fine to serve from a secondary
+        return readOnlyMongo.template().stream(query, Document.class, mongoTemplate.getCollectionName(userModel.class));
+    }
 }
@@ -2,10 +2,25 @@ package com.ms19.jourenal_apk.Repository;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 
 import com.ms19.jourenal_apk.entity.userModel;
 
 public interface UserRepo extends MongoRepository<userModel,ObjectId> {
     userModel findByuserName(String userName);
     userModel deleteByuserName(String userName);
+
+    // only loads the _id so the journalEntries DBRefs are not resolved
+    @Query(value = "{ 'userName' : ?0 }", fields = "{ '_id' : 1 }")
+    userModel findIdByuserName(String userName);
+
+    // what authentication needs and nothing more, used to build CustomUserDetails
+    @Query(value = "{ 'userName' : ?0 }", fields = "{ 'userName' : 1, 'password' : 1, 'email' : 1, 'Role' : 1, 'tokenVersion' : 1 }")
+    userModel findAuthByuserName(String userName);
+
+    // rehash on login, only the hash changes so tokenVersion stays as it is
+    @Query("{ 'userName' : ?0 }")
+    @Update("{ '$set' : { 'password' : ?1 } }")
+    long updatePasswordByuserName(String userName, String password);
 }
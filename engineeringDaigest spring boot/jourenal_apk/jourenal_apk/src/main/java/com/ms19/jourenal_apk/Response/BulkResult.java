@@ -0,0 +1,37 @@
+package com.ms19.jourenal_apk.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+// outcome of a bulk write, one item per entry in the request, in request order
+@Data
+public class BulkResult {
+
+    public static final String CREATED = "created";
+    public static final String UPSERTED = "upserted";
+    public static final String INVALID = "invalid";
+    public static final String FAILED = "failed";
+
+    private int received;
+    private int written;
+    private int failed;
+    // set when a malformed element stopped the import after part of it was written;
+    // items and received cover the entries before it, nothing after it was read
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+    private List<Item> items = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    public static class Item {
+        private int index;
+        private String id;
+        private String status;
+        private String error;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ms19.jourenal_apk.Response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> items;
+    // pass this back as ?cursor= to get the next page, null when there is no more data
+    private String nextCursor;
+}
@@ -0,0 +1,17 @@
+package com.ms19.jourenal_apk.Response;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SearchPage<T> {
+
+    private List<T> items;
+    private int page;
+    private int size;
+    // true when asking for page + 1 returns more results
+    private boolean hasMore;
+}
@@ -0,0 +1,32 @@
+package com.ms19.jourenal_apk.Response;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SyncPage {
+
+    // oldest change first, at most one change per entry
+    private List<Change> changes;
+    // pass this back as ?since= on the next sync
+    private String nextToken;
+    // true when more changes are waiting, call again right away with nextToken
+    private boolean hasMore;
+
+    @Data
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Change {
+        private String id;
+        private String op;
+        private long seq;
+        // current entry for upserts, null for deletes
+        private journalEntryModel entry;
+    }
+}
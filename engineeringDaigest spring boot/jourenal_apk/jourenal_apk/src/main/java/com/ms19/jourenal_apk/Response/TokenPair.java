@@ -0,0 +1,19 @@
+package com.ms19.jourenal_apk.Response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// what login and refresh hand out; also the body of /token/refresh and /user/logout,
+// which only read refreshToken
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenPair {
+
+    private String accessToken;
+    private String refreshToken;
+    private String tokenType;
+    // seconds until the access token expires
+    private long expiresIn;
+}
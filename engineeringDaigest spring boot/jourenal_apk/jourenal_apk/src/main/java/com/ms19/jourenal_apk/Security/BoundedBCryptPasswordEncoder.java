@@ -0,0 +1,224 @@
+package com.ms19.jourenal_apk.Security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// BCrypt on a small pool of its own instead of on the request threads. At most `threads`
+// hashes run at once (one per core by default) and `queue-size` wait; anything beyond that is
+// shed with a RejectedExecutionException, which the controllers answer with 503, so a login
+// burst costs a few cores and does not starve the other endpoints. The request thread still
+// waits for its hash, but idle, and for at most max-wait-ms.
+//
+// The cost factor is journal.security.bcrypt.strength, or with 0 the highest cost that hashes
+// within target-ms on this host, measured at startup. Passwords stored with another cost are
+// rehashed on the next successful login (see UserDetailServiceImpl.updatePassword).
+@Component
+@Slf4j
+public class BoundedBCryptPasswordEncoder implements PasswordEncoder {
+
+    static final int MIN_STRENGTH = 10;
+    static final int MAX_STRENGTH = 16;
+
+    private static final Pattern BCRYPT_PREFIX = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${journal.security.bcrypt.strength:0}")
+    private int configuredStrength;
+
+    @Value("${journal.security.bcrypt.target-ms:100}")
+    private long targetMs;
+
+    // 0 = one per available core
+    @Value("${journal.security.hashing.threads:0}")
+    private int threads;
+
+    @Value("${journal.security.hashing.queue-size:64}")
+    private int queueSize;
+
+    @Value("${journal.security.hashing.max-wait-ms:5000}")
+    private long maxWaitMs;
+
+    private ThreadPoolExecutor executor;
+    private BCryptPasswordEncoder bcrypt;
+    private int strength;
+    private double calibratedMs;
+
+    // time from submit to result, so queueing shows up too
+    private Timer encodeTimer;
+    private Timer matchesTimer;
+
+    private final AtomicLong hashed = new AtomicLong();
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "bcrypt-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        strength = configuredStrength > 0 ? configuredStrength : calibrate();
+        bcrypt = new BCryptPasswordEncoder(strength);
+
+        encodeTimer = hashTimer("encode");
+        matchesTimer = hashTimer("matches");
+        Gauge.builder("journal.password.hash.queue", executor, e -> e.getQueue().size())
+                .description("password hashes waiting for a hashing thread")
+                .register(meterRegistry);
+        Gauge.builder("journal.password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("password hashes running")
+                .register(meterRegistry);
+        FunctionCounter.builder("journal.password.hash.shed", rejected, AtomicLong::get)
+                .description("password hashes refused because the queue was full")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        FunctionCounter.builder("journal.password.hash.shed", timedOut, AtomicLong::get)
+                .description("password hashes given up after max-wait-ms")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+        log.info("bcrypt cost {} on {} hashing threads, queue {}", strength, poolSize, queueSize);
+    }
+
+    private Timer hashTimer(String op) {
+        return Timer.builder("journal.password.hash")
+                .description("bcrypt work including the wait for a hashing thread")
+                .tag("op", op)
+                .tag("strength", String.valueOf(strength))
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // every extra cost step doubles the work, so one measurement at the minimum cost is enough
+    // to pick the highest cost that stays within the target
+    private int calibrate() {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_STRENGTH);
+        probe.encode("calibration"); // warm up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        calibratedMs = best / 1e6;
+        int steps = (int) Math.floor(Math.log(targetMs / calibratedMs) / Math.log(2));
+        int cost = Math.max(MIN_STRENGTH, Math.min(MAX_STRENGTH, MIN_STRENGTH + steps));
+        log.info("bcrypt cost {} takes {} ms here, target {} ms -> cost {}", MIN_STRENGTH,
+                String.format("%.1f", calibratedMs), targetMs, cost);
+        return cost;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        hashed.incrementAndGet();
+        return encodeTimer.record(() -> run(() -> bcrypt.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        verified.incrementAndGet();
+        return matchesTimer.record(() -> run(() -> bcrypt.matches(rawPassword, encodedPassword)));
+    }
+
+    // A calibrated cost differs from host to host, so it only ever raises stored hashes;
+    // lowering the cost takes an explicit journal.security.bcrypt.strength
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int stored = strengthOf(encodedPassword);
+        if (stored < 0) {
+            return false;
+        }
+        return stored < strength || (configuredStrength > 0 && stored != strength);
+    }
+
+    static int strengthOf(String encodedPassword) {
+        if (encodedPassword == null) {
+            return -1;
+        }
+        Matcher matcher = BCRYPT_PREFIX.matcher(encodedPassword);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("password hashing is overloaded, try again later");
+        }
+        try {
+            return future.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.incrementAndGet();
+            throw new RejectedExecutionException("password hashing timed out, try again later");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("strength", strength);
+        res.put("calibrated", configuredStrength <= 0);
+        res.put("calibrationMsAtMinStrength", calibratedMs);
+        res.put("threads", executor.getMaximumPoolSize());
+        res.put("active", executor.getActiveCount());
+        res.put("queued", executor.getQueue().size());
+        res.put("queueCapacity", queueSize);
+        res.put("hashed", hashed.get());
+        res.put("verified", verified.get());
+        res.put("rejected", rejected.get());
+        res.put("timedOut", timedOut.get());
+        return res;
+    }
+}
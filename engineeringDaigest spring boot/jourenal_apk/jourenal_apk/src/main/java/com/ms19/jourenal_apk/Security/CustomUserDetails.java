@@ -3,37 +3,66 @@ package com.ms19.jourenal_apk.Security;
 import java.util.Collection;
 import java.util.List;
 
+import org.bson.types.ObjectId;
+
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import com.ms19.jourenal_apk.entity.journalEntryModel;
 import com.ms19.jourenal_apk.entity.userModel;
 
+// Kept small on purpose: it lives in the security context of every request and in the
+// principal cache, so it holds no journal entries. Use
+// JournalEntryServices.getJournalEntries(CustomUserDetails) to load them when needed.
 public class CustomUserDetails implements UserDetails {
 
+    private ObjectId id;
     private String username;
     private String password;
     private String email;
-    private List<journalEntryModel> journalEntries; // Custom field
+    private List<String> roles;
+    private int tokenVersion;
     private Collection<? extends GrantedAuthority> authorities;
 
     public CustomUserDetails(userModel user) {
+        this.id = user.getId();
         this.username = user.getUserName();
         this.password = user.getPassword();
         this.email = user.getEmail();
-        this.journalEntries = user.getJournalEntries(); // Custom field
-        this.authorities = user.getRole().stream()
+        this.roles = user.getRole();
+        this.tokenVersion = user.getTokenVersion();
+        this.authorities = toAuthorities(roles);
+    }
+
+    // principal rebuilt from signed JWT claims, there is no password or email in the token
+    public CustomUserDetails(ObjectId id, String username, List<String> roles, int tokenVersion) {
+        this.id = id;
+        this.username = username;
+        this.roles = roles;
+        this.tokenVersion = tokenVersion;
+        this.authorities = toAuthorities(roles);
+    }
+
+    private static List<SimpleGrantedAuthority> toAuthorities(List<String> roles) {
+        return roles.stream()
                 .map(role -> new SimpleGrantedAuthority("ROLE_" + role)) // Convert roles to GrantedAuthority
                 .toList();
     }
 
+    public ObjectId getId() {
+        return id;
+    }
+
     public String getEmail() {
         return email;
     }
 
-    public List<journalEntryModel> getJournalEntries() {
-        return journalEntries;
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
     }
 
     @Override
@@ -0,0 +1,176 @@
+package com.ms19.jourenal_apk.Security;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PostConstruct;
+
+// Checks that run in front of the password check on login, so junk logins are turned away
+// before they cost a BCrypt hash.
+//
+// Rate limits are token buckets per client ip and per username, kept in fixed arrays of
+// striped slots: a key hashes to a slot and keys that collide share a bucket, which can only
+// make the limit stricter. A bucket is one long, the time it is full again ("theoretical
+// arrival time"), so taking a token is a read and a CAS without locks or allocation.
+//
+// Usernames that do not exist are remembered for a short while and rejected at once. This
+// gives up the equal timing of "no such user" and "wrong password" that Spring Security
+// buys with a dummy hash, the sign-up endpoint already tells whether a name is taken.
+@Component
+public class LoginThrottle {
+
+    @Value("${journal.security.login.throttle.enabled:true}")
+    private boolean enabled;
+
+    // slots per bucket array, rounded up to a power of two
+    @Value("${journal.security.login.throttle.stripes:8192}")
+    private int stripes;
+
+    // 0 turns the limit off
+    @Value("${journal.security.login.throttle.user-per-minute:10}")
+    private int userPerMinute;
+
+    @Value("${journal.security.login.throttle.user-burst:5}")
+    private int userBurst;
+
+    @Value("${journal.security.login.throttle.ip-per-minute:120}")
+    private int ipPerMinute;
+
+    @Value("${journal.security.login.throttle.ip-burst:30}")
+    private int ipBurst;
+
+    @Value("${journal.security.login.unknown-user-cache.max-size:100000}")
+    private long unknownMaxSize;
+
+    @Value("${journal.security.login.unknown-user-cache.ttl-seconds:60}")
+    private long unknownTtlSeconds;
+
+    private Buckets userBuckets;
+    private Buckets ipBuckets;
+    private Cache<String, Boolean> unknownUsers;
+
+    private final AtomicLong ipLimited = new AtomicLong();
+    private final AtomicLong userLimited = new AtomicLong();
+    private final AtomicLong unknownRejected = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        userBuckets = new Buckets(size, userPerMinute, userBurst);
+        ipBuckets = new Buckets(size, ipPerMinute, ipBurst);
+        unknownUsers = Caffeine.newBuilder()
+                .maximumSize(unknownMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(unknownTtlSeconds))
+                .build();
+    }
+
+    public boolean tryAcquireIp(String ip) {
+        if (!enabled || ip == null || ipBuckets.tryAcquire(ip)) {
+            return true;
+        }
+        ipLimited.incrementAndGet();
+        return false;
+    }
+
+    public boolean tryAcquireUser(String userName) {
+        if (!enabled || userName == null || userBuckets.tryAcquire(userName)) {
+            return true;
+        }
+        userLimited.incrementAndGet();
+        return false;
+    }
+
+    public boolean isUnknownUser(String userName) {
+        if (!enabled || userName == null || unknownUsers.getIfPresent(userName) == null) {
+            return false;
+        }
+        unknownRejected.incrementAndGet();
+        return true;
+    }
+
+    public void markUnknownUser(String userName) {
+        if (enabled && userName != null) {
+            unknownUsers.put(userName, Boolean.TRUE);
+        }
+    }
+
+    // call when a user is created or renamed so the name can log in right away on this instance
+    public void forgetUnknownUser(String userName) {
+        if (userName != null) {
+            unknownUsers.invalidate(userName);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("enabled", enabled);
+        res.put("stripes", userBuckets.length());
+        res.put("ipLimited", ipLimited.get());
+        res.put("userLimited", userLimited.get());
+        res.put("unknownUserRejected", unknownRejected.get());
+        res.put("unknownUsersCached", unknownUsers.estimatedSize());
+        return res;
+    }
+
+    // GCRA form of a token bucket: a slot holds the nano time at which its bucket is full again.
+    // A request fits when that time is at most burst intervals ahead of now, and moves it one
+    // interval further.
+    private static final class Buckets {
+
+        private final AtomicLongArray fullAt;
+        private final int mask;
+        private final long intervalNanos;
+        private final long burstNanos;
+
+        Buckets(int size, int perMinute, int burst) {
+            this.fullAt = new AtomicLongArray(size);
+            this.mask = size - 1;
+            this.intervalNanos = perMinute > 0 ? TimeUnit.MINUTES.toNanos(1) / perMinute : 0;
+            this.burstNanos = intervalNanos * Math.max(1, burst);
+            long now = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                fullAt.set(i, now);
+            }
+        }
+
+        boolean tryAcquire(String key) {
+            if (intervalNanos == 0) {
+                return true;
+            }
+            int slot = spread(key.hashCode()) & mask;
+            long now = System.nanoTime();
+            while (true) {
+                long current = fullAt.get(slot);
+                long base = current - now > 0 ? current : now;
+                long next = base + intervalNanos;
+                if (next - now > burstNanos) {
+                    return false;
+                }
+                if (fullAt.compareAndSet(slot, current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        int length() {
+            return fullAt.length();
+        }
+
+        // String.hashCode has weak low bits for short keys, mix before masking
+        private static int spread(int h) {
+            h ^= h >>> 16;
+            h *= 0x45d9f3b;
+            return h ^ (h >>> 16);
+        }
+    }
+}
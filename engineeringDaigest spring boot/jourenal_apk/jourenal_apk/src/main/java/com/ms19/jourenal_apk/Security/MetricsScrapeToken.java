@@ -0,0 +1,51 @@
+package com.ms19.jourenal_apk.Security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+// Authenticates the Prometheus scrape of /actuator/** with a static bearer token
+// (journal.metrics.scrape-token), compared in constant time. A scrape every few seconds must not
+// queue for BoundedBCryptPasswordEncoder with the logins, or be rejected when it is full, as it
+// would over http basic. Without a token configured the endpoints stay closed.
+@Component
+@Slf4j
+public class MetricsScrapeToken {
+
+    public static final String ROLE = "METRICS";
+
+    @Value("${journal.metrics.scrape-token:}")
+    private String token;
+
+    private byte[] expected;
+
+    @PostConstruct
+    public void init() {
+        expected = token.getBytes(StandardCharsets.UTF_8);
+        if (expected.length == 0) {
+            log.warn("journal.metrics.scrape-token is not set, /actuator/prometheus cannot be scraped");
+        }
+    }
+
+    // the scraper's authentication, null when the header does not carry the token
+    public Authentication authenticate(String authorizationHeader) {
+        if (expected.length == 0 || authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
+            return null;
+        }
+        byte[] given = authorizationHeader.substring(7).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(given, expected)) {
+            return null;
+        }
+        return UsernamePasswordAuthenticationToken.authenticated("metrics-scraper", null,
+                List.of(new SimpleGrantedAuthority("ROLE_" + ROLE)));
+    }
+}
@@ -0,0 +1,208 @@
+package com.ms19.jourenal_apk.Security;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ms19.jourenal_apk.config.IoThreads;
+import com.ms19.jourenal_apk.entity.revokedTokenModel;
+import com.ms19.jourenal_apk.utils.BloomFilter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Revoked access tokens, checked on every authenticated request. The ids live in Mongo
+// (revokedToken) and in a bloom filter here: a token that is not in the filter, which is
+// nearly every token, is let through after a few memory reads. A hit is confirmed against
+// Mongo once and the answer kept, so a false positive costs one lookup per token, not one per
+// request. Other instances' revocations arrive with the next sync, every sync-ms, on a thread of
+// its own so a long scheduled job cannot hold it up; the filter is rebuilt from the unexpired
+// ids now and then, since ids cannot be removed from it, and when it is fuller than it was sized for.
+@Component
+@Slf4j
+public class TokenRevocationList {
+
+    // ids read again on every sync, covers clock skew between instances
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(5);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private IoThreads ioThreads;
+
+    @Value("${journal.security.revocation.expected-insertions:100000}")
+    private int expectedInsertions;
+
+    @Value("${journal.security.revocation.fpp:0.01}")
+    private double fpp;
+
+    @Value("${journal.security.revocation.rebuild-minutes:60}")
+    private long rebuildMinutes;
+
+    @Value("${journal.security.revocation.sync-ms:10000}")
+    private long syncMs;
+
+    private volatile BloomFilter filter;
+    // ids the current filter was sized for
+    private volatile int capacity;
+    private volatile LocalDateTime syncedUpTo;
+    private volatile long lastRebuildNanos;
+    private volatile LocalDateTime lastSyncAt;
+
+    // exact answers for ids that hit the filter
+    private Cache<String, Boolean> confirmed;
+
+    private ScheduledExecutorService syncScheduler;
+
+    private final AtomicLong filterHits = new AtomicLong();
+    private final AtomicLong revokedHits = new AtomicLong();
+    private final AtomicLong syncFailures = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        filter = BloomFilter.create(expectedInsertions, fpp);
+        capacity = expectedInsertions;
+        confirmed = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+        syncScheduler = Executors.newSingleThreadScheduledExecutor(ioThreads.threadFactory("token-revocation-sync-"));
+        syncScheduler.scheduleWithFixedDelay(this::sync, 0, syncMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        syncScheduler.shutdownNow();
+    }
+
+    // true when the token with this jti was revoked; tokens without a jti predate revocation
+    public boolean isRevoked(String jti) {
+        if (!mightBeRevoked(jti)) {
+            return false;
+        }
+        filterHits.incrementAndGet();
+        boolean revoked = confirmed.get(jti,
+                id -> mongoTemplate.exists(Query.query(Criteria.where("_id").is(id)), revokedTokenModel.class));
+        if (revoked) {
+            revokedHits.incrementAndGet();
+        }
+        return revoked;
+    }
+
+    // memory only: false means not revoked, true needs isRevoked to be sure
+    public boolean mightBeRevoked(String jti) {
+        return jti != null && filter.mightContain(jti);
+    }
+
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.before(new Date())) {
+            return;
+        }
+        revoke(jti, LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()));
+    }
+
+    public void revoke(String jti, LocalDateTime expiresAt) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(jti)),
+                new Update().set("revokedAt", LocalDateTime.now()).set("expireAt", expiresAt),
+                revokedTokenModel.class);
+        filter.put(jti);
+        confirmed.put(jti, Boolean.TRUE);
+    }
+
+    public void sync() {
+        try {
+            boolean rebuildDue = syncedUpTo == null
+                    || System.nanoTime() - lastRebuildNanos > TimeUnit.MINUTES.toNanos(rebuildMinutes)
+                    || filter.insertions() > capacity;
+            if (rebuildDue) {
+                rebuild();
+            } else {
+                addSince(syncedUpTo.minus(SYNC_OVERLAP));
+            }
+            lastSyncAt = LocalDateTime.now();
+        } catch (DataAccessException e) {
+            syncFailures.incrementAndGet();
+            log.warn("could not sync revoked tokens: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            // an exception would cancel the fixed delay schedule
+            syncFailures.incrementAndGet();
+            log.error("revoked token sync failed", e);
+        }
+    }
+
+    // a fresh filter with only the ids of tokens that have not expired yet
+    private void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("expireAt").gt(now));
+        query.fields().include("_id");
+        long count = mongoTemplate.count(query, revokedTokenModel.class);
+        int size = (int) Math.min(Integer.MAX_VALUE, Math.max(expectedInsertions, count * 2));
+        BloomFilter fresh = BloomFilter.create(size, fpp);
+        try (Stream<revokedTokenModel> ids = mongoTemplate.stream(query, revokedTokenModel.class)) {
+            ids.forEach(token -> fresh.put(token.getId()));
+        }
+        // revocations from this instance while the ids were read
+        addSince(fresh, now.minus(SYNC_OVERLAP));
+        filter = fresh;
+        capacity = size;
+        confirmed.invalidateAll();
+        syncedUpTo = now;
+        lastRebuildNanos = System.nanoTime();
+        log.info("revoked token filter rebuilt with {} ids", fresh.insertions());
+    }
+
+    private void addSince(LocalDateTime since) {
+        LocalDateTime now = LocalDateTime.now();
+        addSince(filter, since);
+        syncedUpTo = now;
+    }
+
+    private void addSince(BloomFilter target, LocalDateTime since) {
+        Query query = Query.query(Criteria.where("revokedAt").gte(since));
+        query.fields().include("_id");
+        try (Stream<revokedTokenModel> ids = mongoTemplate.stream(query, revokedTokenModel.class)) {
+            ids.forEach(token -> {
+                target.put(token.getId());
+                // may have been answered "not revoked" as a false positive before
+                confirmed.invalidate(token.getId());
+            });
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        BloomFilter current = filter;
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("ids", current.insertions());
+        res.put("capacity", capacity);
+        res.put("bits", current.bitSize());
+        res.put("hashes", current.hashCount());
+        res.put("expectedFpp", current.expectedFpp());
+        res.put("filterHits", filterHits.get());
+        res.put("revokedHits", revokedHits.get());
+        res.put("confirmedCached", confirmed.estimatedSize());
+        res.put("syncFailures", syncFailures.get());
+        res.put("lastSyncAt", lastSyncAt);
+        return res;
+    }
+}
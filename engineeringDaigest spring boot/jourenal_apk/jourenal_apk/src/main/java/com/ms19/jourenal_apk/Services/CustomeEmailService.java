@@ -2,12 +2,8 @@ package com.ms19.jourenal_apk.Services;
 
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -15,28 +11,16 @@ import lombok.extern.slf4j.Slf4j;
 public class CustomeEmailService  {
 
     @Autowired
-    private JavaMailSender javaMailSender;
-
-    public void sendHtmlMail(String to, String subject, String htmlContent) {
-        try {
-            // Create a MIME message
-            MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-
-            // Helper to handle the message content
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "utf-8");
-
-            // Set the email properties
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true); // Set `true` for HTML content
-
-            // Send the email
-            javaMailSender.send(mimeMessage);
-            log.info("Email sent successfully to {}", to);
-
-        } catch (MessagingException e) {
-            log.error("Error while sending email: {}", e.getMessage());
+    private MailOutbox mailOutbox;
+
+    // queues an html mail, the MailOutbox workers do the actual SMTP work
+    public String sendHtmlMail(String to, String subject, String htmlContent) {
+        String trackingId = mailOutbox.enqueue(to, subject, htmlContent, true); // `true` for HTML content
+        if (trackingId == null) {
+            log.error("Error while sending email: mail outbox is full");
+        } else {
+            log.info("Email queued for {} with tracking id {}", to, trackingId);
         }
+        return trackingId;
     }
 }
-
@@ -1,8 +1,6 @@
 package com.ms19.jourenal_apk.Services;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 import lombok.extern.slf4j.Slf4j;
@@ -12,18 +10,14 @@ import lombok.extern.slf4j.Slf4j;
 public class EmailService {
 
     @Autowired
-    private JavaMailSender javaMailSender;
+    private MailOutbox mailOutbox;
 
-    public void SendMail(String to, String subject, String body) {
-        try {
-            SimpleMailMessage mail = new SimpleMailMessage();
-            mail.setTo(to);
-            mail.setSubject(subject);
-            mail.setText(body);
-            javaMailSender.send(mail);
-        } catch (Exception e) {
-            // TODO: handle exception
+    // queues the mail and returns its tracking id right away, null when the outbox is full
+    public String SendMail(String to, String subject, String body) {
+        String trackingId = mailOutbox.enqueue(to, subject, body, false);
+        if (trackingId == null) {
             log.error("could not send the message");
         }
+        return trackingId;
     }
 }
@@ -0,0 +1,269 @@
+package com.ms19.jourenal_apk.Services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoException;
+import com.mongodb.bulk.BulkWriteError;
+import com.ms19.jourenal_apk.Response.BulkResult;
+import com.ms19.jourenal_apk.entity.journalChangeModel;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.utils.SearchWords;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Bulk create/upsert for offline sync. The JSON array in the request body is read one
+// entry at a time, each entry is validated on its own and valid ones are written in
+// unordered bulk chunks, so a bad entry never stops the rest of the import.
+// Entries without an id are inserted, entries with an id are upserted (owner only).
+// A malformed request (not an array, an element that is not an object, broken JSON, too many
+// entries) fails as a whole while nothing is written yet, which covers every request of up to
+// chunk-size entries. Once a chunk is in, the import stops at the bad element instead: the
+// entries before it are written and the result carries the error and where it stopped.
+@Service
+@Slf4j
+public class JournalBulkService {
+
+    private static final int MAX_TITLE_LENGTH = 500;
+    private static final int MAX_CONTENT_LENGTH = 100_000;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JournalEntryServices journalEntryServices;
+
+    @Autowired
+    private JournalChangeService journalChangeService;
+
+    @Value("${journal.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${journal.bulk.max-entries:10000}")
+    private int maxEntries;
+
+    // null when the user does not exist
+    public BulkResult importEntries(String userName, InputStream body) throws IOException {
+        ObjectId ownerId = journalEntryServices.resolveOwnerId(userName);
+        if (ownerId == null) {
+            return null;
+        }
+        BulkResult result = new BulkResult();
+        List<Pending> chunk = new ArrayList<>(chunkSize);
+        int index = 0;
+        boolean committed = false;
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("request body must be a JSON array of entries");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("entry " + index + " is not a JSON object");
+                }
+                if (index == maxEntries) {
+                    throw new IllegalArgumentException("at most " + maxEntries + " entries per request");
+                }
+                journalEntryModel entry = parser.readValueAs(journalEntryModel.class);
+                String error = validate(entry);
+                if (error != null) {
+                    result.getItems().add(new BulkResult.Item(index, null, BulkResult.INVALID, error));
+                } else {
+                    chunk.add(new Pending(index, entry, entry.getId() != null));
+                    if (chunk.size() == chunkSize) {
+                        writeChunk(chunk, ownerId, userName, result);
+                        committed = true;
+                    }
+                }
+                index++;
+            }
+            result.setReceived(index);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            if (!committed) {
+                throw e;
+            }
+            // earlier chunks are written, report them and where the request stopped
+            result.setReceived(index);
+            result.setError("stopped at entry " + index + ": " + e.getMessage());
+            log.warn("bulk import for {} stopped at entry {} after writing part of it", userName, index);
+        } catch (RuntimeException e) {
+            // the write of a chunk failed (timeout, lost connection, change records)
+            if (!committed) {
+                throw e;
+            }
+            writeStopped(chunk, userName, result, e);
+        }
+        if (!chunk.isEmpty()) {
+            try {
+                writeChunk(chunk, ownerId, userName, result);
+            } catch (RuntimeException e) {
+                if (!committed) {
+                    throw e;
+                }
+                writeStopped(chunk, userName, result, e);
+            }
+        }
+
+        result.getItems().sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        result.setWritten((int) result.getItems().stream()
+                .filter(i -> i.getStatus().equals(BulkResult.CREATED) || i.getStatus().equals(BulkResult.UPSERTED))
+                .count());
+        result.setFailed(result.getReceived() - result.getWritten());
+        log.info("bulk import for {}: {} received, {} written", userName, result.getReceived(), result.getWritten());
+        return result;
+    }
+
+    // a chunk that could not be written after earlier ones were: its entries are reported as
+    // failed and the request stops there, nothing after it is read
+    private void writeStopped(List<Pending> chunk, String userName, BulkResult result, RuntimeException e) {
+        int first = chunk.get(0).index;
+        for (Pending pending : chunk) {
+            String id = pending.entry.getId() != null ? pending.entry.getId().toHexString() : null;
+            result.getItems().add(new BulkResult.Item(pending.index, id, BulkResult.FAILED,
+                    "not written: " + e.getMessage()));
+        }
+        result.setReceived(Math.max(result.getReceived(), chunk.get(chunk.size() - 1).index + 1));
+        String error = "stopped at entry " + first + ": " + e.getMessage();
+        result.setError(result.getError() == null ? error : result.getError() + "; " + error);
+        log.warn("bulk import for {} could not write entries from {} after writing part of it", userName, first, e);
+        chunk.clear();
+    }
+
+    private String validate(journalEntryModel entry) {
+        if (entry.getTitle() == null || entry.getTitle().isBlank()) {
+            return "title is required";
+        }
+        if (entry.getTitle().length() > MAX_TITLE_LENGTH) {
+            return "title is longer than " + MAX_TITLE_LENGTH;
+        }
+        if (entry.getContent() != null && entry.getContent().length() > MAX_CONTENT_LENGTH) {
+            return "content is longer than " + MAX_CONTENT_LENGTH;
+        }
+        return null;
+    }
+
+    // the chunk and its change records are one transaction (JournalChangeService.write). A write
+    // error aborts the whole transaction, so the entries that failed are set aside and the rest
+    // of the chunk is written again; every round takes out at least one entry
+    private void writeChunk(List<Pending> chunk, ObjectId ownerId, String userName, BulkResult result) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Pending pending : chunk) {
+            if (!pending.upsert) {
+                // assign the id up front so it can be reported back per item
+                journalEntryModel entry = pending.entry;
+                entry.setId(new ObjectId());
+                entry.setOwnerId(ownerId);
+                entry.setOwnerName(userName);
+                entry.setCreatedAt(entry.getCreatedAt() != null ? entry.getCreatedAt() : now);
+                entry.setUpdatedAt(now);
+                entry.setVersion(0L);
+                SearchWords.fill(entry);
+            }
+        }
+
+        String[] failures = new String[chunk.size()];
+        while (true) {
+            List<Integer> remaining = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                if (failures[i] == null) {
+                    remaining.add(i);
+                }
+            }
+            if (remaining.isEmpty()) {
+                break;
+            }
+            try {
+                journalChangeService.write(ownerId, journalChangeModel.UPSERT,
+                        ops -> writeEntries(ops, remaining.stream().map(chunk::get).toList(), ownerId, userName, now),
+                        ids -> ids);
+                break;
+            } catch (ChunkRejected e) {
+                for (BulkWriteError error : e.errors) {
+                    failures[remaining.get(error.getIndex())] = error.getMessage();
+                }
+            }
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            Pending pending = chunk.get(i);
+            String id = pending.entry.getId().toHexString();
+            if (failures[i] != null) {
+                result.getItems().add(new BulkResult.Item(pending.index, id, BulkResult.FAILED, failures[i]));
+            } else {
+                result.getItems().add(new BulkResult.Item(pending.index, id,
+                        pending.upsert ? BulkResult.UPSERTED : BulkResult.CREATED, null));
+            }
+        }
+        chunk.clear();
+    }
+
+    private List<ObjectId> writeEntries(MongoOperations ops, List<Pending> entries, ObjectId ownerId, String userName,
+            LocalDateTime now) {
+        BulkOperations bulk = ops.bulkOps(BulkOperations.BulkMode.UNORDERED, journalEntryModel.class);
+        for (Pending pending : entries) {
+            journalEntryModel entry = pending.entry;
+            if (pending.upsert) {
+                // the owner is part of the filter, an id that belongs to someone else fails with a duplicate key
+                Query query = new Query(Criteria.where("_id").is(entry.getId()).and("ownerId").is(ownerId));
+                Update update = new Update()
+                        .set("title", entry.getTitle())
+                        .set("content", entry.getContent())
+                        .set(SearchWords.TITLE_FIELD, SearchWords.of(entry.getTitle()))
+                        .set(SearchWords.CONTENT_FIELD, SearchWords.of(entry.getContent()))
+                        .set("ownerName", userName)
+                        .set("updatedAt", now)
+                        .inc("version", 1)
+                        .setOnInsert("createdAt", entry.getCreatedAt() != null ? entry.getCreatedAt() : now);
+                bulk.upsert(query, update);
+            } else {
+                bulk.insert(entry);
+            }
+        }
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            // a write conflict goes back to the transaction to be retried, entry errors to writeChunk
+            if (e.getCause() instanceof MongoException cause
+                    && cause.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                throw e;
+            }
+            if (e.getErrors().isEmpty()) {
+                throw e;
+            }
+            throw new ChunkRejected(e.getErrors());
+        }
+        return entries.stream().map(pending -> pending.entry.getId()).toList();
+    }
+
+    // entry errors of one round, thrown out of the transaction so it is rolled back
+    private static class ChunkRejected extends RuntimeException {
+        private final transient List<BulkWriteError> errors;
+
+        ChunkRejected(List<BulkWriteError> errors) {
+            super("bulk write rejected " + errors.size() + " entries", null, false, false);
+            this.errors = errors;
+        }
+    }
+
+    private record Pending(int index, journalEntryModel entry, boolean upsert) {
+    }
+}
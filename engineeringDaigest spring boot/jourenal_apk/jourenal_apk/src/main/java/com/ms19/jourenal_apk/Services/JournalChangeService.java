@@ -0,0 +1,241 @@
+package com.ms19.jourenal_apk.Services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.mongodb.ClientSessionOptions;
+import com.mongodb.MongoException;
+import com.mongodb.ReadConcern;
+import com.mongodb.ReadPreference;
+import com.mongodb.TransactionOptions;
+import com.mongodb.WriteConcern;
+import com.mongodb.client.ClientSession;
+import com.ms19.jourenal_apk.Repository.JournaleEntryRepo;
+import com.ms19.jourenal_apk.Response.SyncPage;
+import com.ms19.jourenal_apk.entity.journalChangeModel;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.entity.journalVersionModel;
+
+// change log behind delta sync. Every entry write goes through here: it bumps the owner's
+// journal version and stores that version as the entry's change seq, so a sync only reads
+// the changes after the client's seq through the ownerId+seq index.
+//
+// The entry write, the bump and the change document are one transaction (write). Two writers for
+// the same owner conflict on the version document and the driver retries the later one after the
+// first commits, so seq N+1 never becomes visible before seq N and a sync token cannot skip a
+// change; and an entry write is never visible without its change, nor fails after it was stored.
+@Service
+public class JournalChangeService {
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    // same as the transaction manager in JourenalApkApplication
+    static final TransactionOptions PUBLISH_OPTIONS = TransactionOptions.builder()
+            .readPreference(ReadPreference.primary())
+            .readConcern(ReadConcern.MAJORITY)
+            .writeConcern(WriteConcern.MAJORITY)
+            .build();
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JournalVersionService journalVersionService;
+
+    @Autowired
+    private JournaleEntryRepo journaleEntryRepo;
+
+    @Autowired
+    private MongoDatabaseFactory mongoDatabaseFactory;
+
+    // how long delete tombstones are kept, a client that has not synced for longer must re-download
+    @Value("${journal.sync.tombstone-retention-days:30}")
+    private int tombstoneRetentionDays;
+
+    // one version bump for the whole batch, each entry still gets its own seq
+    public void entriesChanged(ObjectId ownerId, List<ObjectId> entryIds) {
+        if (entryIds.isEmpty()) {
+            return;
+        }
+        write(ownerId, journalChangeModel.UPSERT, ops -> entryIds, ids -> ids);
+    }
+
+    // runs the entry write on the session bound ops and records the entries it reports as changed,
+    // all in one transaction. Nothing is recorded when the write returns null or no ids (nothing
+    // matched). The write can run more than once when the transaction is retried
+    public <T> T write(ObjectId ownerId, String op, Function<MongoOperations, T> write,
+            Function<T, List<ObjectId>> changedIds) {
+        try (ClientSession session = mongoDatabaseFactory.getSession(ClientSessionOptions.builder().build())) {
+            return session.withTransaction(() -> {
+                try {
+                    MongoOperations ops = mongoTemplate.withSession(session);
+                    T result = write.apply(ops);
+                    List<ObjectId> entryIds = result == null ? List.of() : changedIds.apply(result);
+                    if (!entryIds.isEmpty()) {
+                        writeChanges(ops, ownerId, entryIds, op);
+                    }
+                    return result;
+                } catch (DataAccessException e) {
+                    // withTransaction only retries write conflicts it sees as driver exceptions
+                    if (e.getCause() instanceof MongoException cause) {
+                        throw cause;
+                    }
+                    throw e;
+                }
+            }, PUBLISH_OPTIONS);
+        } catch (MongoException e) {
+            DataAccessException translated = MongoExceptionTranslator.DEFAULT_EXCEPTION_TRANSLATOR
+                    .translateExceptionIfPossible(e);
+            throw translated != null ? translated : e;
+        }
+    }
+
+    private void writeChanges(MongoOperations ops, ObjectId ownerId, List<ObjectId> entryIds, String op) {
+        journalVersionModel version = ops.findAndModify(journalVersionService.byOwner(ownerId),
+                journalVersionService.bumpUpdate(entryIds.size()), JournalVersionService.BUMP_OPTIONS,
+                journalVersionModel.class);
+        long seq = version.getVersion() - entryIds.size();
+        LocalDateTime now = LocalDateTime.now();
+        if (entryIds.size() == 1) {
+            ops.upsert(byEntry(entryIds.get(0)), changeUpdate(ownerId, seq + 1, op, now), journalChangeModel.class);
+            return;
+        }
+        BulkOperations bulk = ops.bulkOps(BulkOperations.BulkMode.UNORDERED, journalChangeModel.class);
+        for (ObjectId entryId : entryIds) {
+            bulk.upsert(byEntry(entryId), changeUpdate(ownerId, ++seq, op, now));
+        }
+        bulk.execute();
+    }
+
+    // since == null starts a sync: nothing is returned, only a token to use after the full download.
+    // Take it before downloading so changes made during the download are not missed
+    public SyncPage changesSince(ObjectId ownerId, String since, Integer limit) {
+        long now = System.currentTimeMillis();
+        if (since == null || since.isBlank()) {
+            return startPage(journalVersionService.get(ownerId).getVersion(), now);
+        }
+        SyncToken token = parseToken(since, now);
+        int size = syncPageSize(limit);
+        List<journalChangeModel> changes = mongoTemplate.find(changesQuery(ownerId, token, size), journalChangeModel.class);
+        return page(ownerId, changes, size, journaleEntryRepo.findAllById(upsertedIds(changes, size)), token, now);
+    }
+
+    // the pieces of changesSince, ReactiveJournalEntryServices runs the same queries on reactive Mongo
+
+    public SyncPage startPage(long version, long now) {
+        return new SyncPage(List.of(), token(version, now), false);
+    }
+
+    public SyncToken parseToken(String since, long now) {
+        String[] parts = since.split("\\.");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("malformed sync token");
+        }
+        long seq;
+        long issuedAt;
+        try {
+            seq = Long.parseLong(parts[0]);
+            issuedAt = Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("malformed sync token");
+        }
+        // tombstones newer than the token may already be gone
+        if (now - issuedAt > Duration.ofDays(tombstoneRetentionDays).toMillis()) {
+            throw new IllegalStateException("sync token expired, download the journal again");
+        }
+        return new SyncToken(seq, issuedAt);
+    }
+
+    public static int syncPageSize(Integer limit) {
+        return limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // one change more than the page, to know whether there is a next one
+    public Query changesQuery(ObjectId ownerId, SyncToken token, int size) {
+        return new Query(Criteria.where("ownerId").is(ownerId).and("seq").gt(token.seq()))
+                .with(Sort.by(Sort.Direction.ASC, "seq"))
+                .limit(size + 1);
+    }
+
+    // entries to load for the page
+    public List<ObjectId> upsertedIds(List<journalChangeModel> changes, int size) {
+        return changes.stream()
+                .limit(size)
+                .filter(c -> journalChangeModel.UPSERT.equals(c.getOp()))
+                .map(journalChangeModel::getId)
+                .toList();
+    }
+
+    public SyncPage page(ObjectId ownerId, List<journalChangeModel> changes, int size,
+            Iterable<journalEntryModel> found, SyncToken token, long now) {
+        boolean hasMore = changes.size() > size;
+        if (hasMore) {
+            changes = changes.subList(0, size);
+        }
+        Map<ObjectId, journalEntryModel> entries = new HashMap<>();
+        for (journalEntryModel entry : found) {
+            if (ownerId.equals(entry.getOwnerId())) {
+                entries.put(entry.getId(), entry);
+            }
+        }
+
+        List<SyncPage.Change> items = new ArrayList<>(changes.size());
+        for (journalChangeModel change : changes) {
+            journalEntryModel entry = entries.get(change.getId());
+            // deleted after the change was read, the tombstone follows in a later sync anyway
+            String op = entry == null ? journalChangeModel.DELETE : change.getOp();
+            items.add(new SyncPage.Change(change.getId().toHexString(), op, change.getSeq(), entry));
+        }
+
+        long lastSeq = changes.isEmpty() ? token.seq() : changes.get(changes.size() - 1).getSeq();
+        // mid-sync the token keeps its original time, older tombstones are still ahead of it
+        return new SyncPage(items, token(lastSeq, hasMore ? token.issuedAt() : now), hasMore);
+    }
+
+    public Query byEntry(ObjectId entryId) {
+        return new Query(Criteria.where("_id").is(entryId));
+    }
+
+    // the change document of an entry, written as an upsert on byEntry
+    public Update changeUpdate(ObjectId ownerId, long seq, String op, LocalDateTime now) {
+        Update update = new Update()
+                .set("ownerId", ownerId)
+                .set("seq", seq)
+                .set("op", op)
+                .set("changedAt", now);
+        if (journalChangeModel.DELETE.equals(op)) {
+            update.set("expireAt", now.plusDays(tombstoneRetentionDays));
+        } else {
+            update.unset("expireAt");
+        }
+        return update;
+    }
+
+    private String token(long seq, long issuedAt) {
+        return seq + "." + issuedAt;
+    }
+
+    public record SyncToken(long seq, long issuedAt) {
+    }
+}
@@ -1,97 +1,261 @@
 package com.ms19.jourenal_apk.Services;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.annotation.Timed;
 
 import com.ms19.jourenal_apk.Repository.JournaleEntryRepo;
 import com.ms19.jourenal_apk.Repository.UserRepo;
+import com.ms19.jourenal_apk.Response.CursorPage;
+import com.ms19.jourenal_apk.Response.SearchPage;
+import com.ms19.jourenal_apk.Response.SyncPage;
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.config.ReadOnlyMongo;
+import com.ms19.jourenal_apk.entity.journalChangeModel;
 import com.ms19.jourenal_apk.entity.journalEntryModel;
 import com.ms19.jourenal_apk.entity.userModel;
+import com.ms19.jourenal_apk.scheduler.JournalOwnerMigration;
+import com.ms19.jourenal_apk.utils.SearchWords;
 
 // @Component
+// every public method is timed as journal.service{class,method}, see MetricsConfig
 @Service
+@Timed(value = "journal.service", description = "journal service calls")
 public class JournalEntryServices {
 
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+    static final int MAX_QUERY_LENGTH = 200;
+
     @Autowired
     private JournaleEntryRepo journaleEntryRepo;
 
     @Autowired
-    private UserServices userServices;
+    private UserRepo userRepo;
+
+    // plain reads, see ReadOnlyMongo; writes, read-after-write checks and reads sent with an
+    // ETag stay on journaleEntryRepo
+    @Autowired
+    private ReadOnlyMongo readOnlyMongo;
 
     @Autowired
-    private UserRepo userRepo;
+    private JournalChangeService journalChangeService;
 
-    @Transactional
+    @Autowired
+    private JournalOwnerMigration journalOwnerMigration;
+
+    // one insert into journalEntry, the user document is not rewritten anymore; the insert and its
+    // change record commit together (JournalChangeService.write)
     public journalEntryModel saveEntry(journalEntryModel myEntry, String userName) {
-        userModel user = userRepo.findByuserName(userName);
-        if (user == null) {
+        ObjectId ownerId = resolveOwnerId(userName);
+        if (ownerId == null) {
             return null;
         }
-        journalEntryModel journalEntry = journaleEntryRepo.save(myEntry);
-        user.getJournalEntries().add(journalEntry);
-        userServices.saveUser(user);
-        return journalEntry;
+        myEntry.setOwnerId(ownerId);
+        myEntry.setOwnerName(userName);
+        myEntry.setCreatedAt(LocalDateTime.now());
+        myEntry.setUpdatedAt(myEntry.getCreatedAt());
+        // a new entry, spring data starts the version at 0
+        myEntry.setVersion(null);
+        SearchWords.fill(myEntry);
+        return journalChangeService.write(ownerId, journalChangeModel.UPSERT, ops -> ops.insert(myEntry),
+                saved -> List.of(saved.getId()));
 
     }
 
+    // the full list is sent with the ETag of the journal version, which is read from the
+    // primary, so the list is too: from a lagging secondary it could be older than its ETag
     public List<journalEntryModel> getJournalEntriesByUserName(String userName) {
-        userModel user = userServices.findByUsername(userName);
-        if (user != null) {
-            return user.getJournalEntries();
+        ObjectId ownerId = resolveOwnerId(userName);
+        if (ownerId != null) {
+            return journaleEntryRepo.findByOwnerIdOrderByCreatedAtDesc(ownerId);
         } else {
             return null;
         }
     }
 
+    // the principal does not carry entries, this loads them on demand
+    public List<journalEntryModel> getJournalEntries(CustomUserDetails userDetails) {
+        if (userDetails.getId() == null) {
+            return getJournalEntriesByUserName(userDetails.getUsername());
+        }
+        journalOwnerMigration.ensureMigrated(userDetails.getId());
+        return journaleEntryRepo.findByOwnerIdOrderByCreatedAtDesc(userDetails.getId());
+    }
+
+    public CursorPage<journalEntryModel> getJournalEntriesPage(String userName, String cursor, Integer limit) {
+        ObjectId ownerId = resolveOwnerId(userName);
+        if (ownerId == null) {
+            return null;
+        }
+        int size = pageSize(limit);
+
+        // fetch one extra entry to know if there is a next page
+        Pageable pageable = PageRequest.of(0, size + 1);
+        List<journalEntryModel> entries = cursor == null || cursor.isBlank()
+                ? readOnlyMongo.journalEntryRepo().findByOwnerIdOrderByIdDesc(ownerId, pageable)
+                : readOnlyMongo.journalEntryRepo().findByOwnerIdAndIdLessThanOrderByIdDesc(ownerId, new ObjectId(cursor), pageable);
+
+        String nextCursor = null;
+        if (entries.size() > size) {
+            entries = entries.subList(0, size);
+            nextCursor = entries.get(size - 1).getId().toHexString();
+        }
+        return new CursorPage<>(entries, nextCursor);
+    }
+
+    // prefix=false: ranked full text search (whole words, stemmed) on the text index;
+    // prefix=true: type-ahead match on the start of a word (indexed, see SearchWords), newest first
+    public SearchPage<journalEntryModel> searchEntries(String userName, String q, boolean prefix, Integer page,
+            Integer limit) {
+        validateQuery(q);
+        ObjectId ownerId = resolveOwnerId(userName);
+        if (ownerId == null) {
+            return null;
+        }
+        int size = pageSize(limit);
+        int pageNo = page == null || page < 0 ? 0 : page;
+        Pageable pageable = PageRequest.of(pageNo, size);
+
+        List<journalEntryModel> entries = prefix
+                ? readOnlyMongo.template().find(prefixQuery(ownerId, q, pageable), journalEntryModel.class)
+                : readOnlyMongo.journalEntryRepo().findByOwnerIdOrderByScoreDesc(ownerId,
+                        TextCriteria.forDefaultLanguage().matching(q), pageable);
+
+        // a full page means there may be more, the next page can come back empty
+        return new SearchPage<>(entries, pageNo, size, entries.size() == size);
+    }
+
+    // a single _id lookup, the owner check is part of the query. Sent with the ETag of the journal
+    // version like the full list, and read right after a create, so it stays on the primary too
     public Optional<journalEntryModel> getOneEntry(ObjectId id, String userName) {
-        // Find user by username
-        userModel user = userServices.findByUsername(userName);
+        ObjectId ownerId = resolveOwnerId(userName);
 
         // If user is not found, return an empty Optional
-        if (user == null) {
+        if (ownerId == null) {
             return Optional.empty();
         }
-
-        // Use Stream API to find the first journal entry with the matching ID
-        return user.getJournalEntries()
-                .stream()
-                .filter(entry -> entry.getId().equals(id)) // Match journal entry by ID
-                .findFirst(); // Return the first matching journal entry as Optional
+        return journaleEntryRepo.findByIdAndOwnerId(id, ownerId);
     }
 
     public Optional<journalEntryModel> DeleteEntry(ObjectId myId, String userName) {
-        Optional<journalEntryModel> entry = journaleEntryRepo.findById(myId);
-        if (entry.isPresent()) {
-            userModel user = userRepo.findByuserName(userName);
-            user.getJournalEntries().removeIf(x -> x.getId().equals(myId));
-            userServices.saveUser(user);
-            journaleEntryRepo.deleteById(myId);
-        }
-        return entry; // Return the deleted entity
+        ObjectId ownerId = resolveOwnerId(userName);
+        if (ownerId == null) {
+            return Optional.empty();
+        }
+        // removes only the entry document, nothing to unlink from the user
+        journalEntryModel deleted = journalChangeService.write(ownerId, journalChangeModel.DELETE,
+                ops -> ops.findAndRemove(new Query(Criteria.where("_id").is(myId).and("ownerId").is(ownerId)),
+                        journalEntryModel.class),
+                entry -> List.of(myId));
+        return Optional.ofNullable(deleted); // Return the deleted entity
     }
 
-    public journalEntryModel updateOneEntry(ObjectId myid, journalEntryModel newEtry) {
+    // one findAndModify that only $sets the changed fields. When the client sends the version
+    // it read, the update only applies to that version and a newer one is a conflict
+    public journalEntryModel updateOneEntry(ObjectId myid, journalEntryModel newEtry, String userName) {
+        ObjectId ownerId = resolveOwnerId(userName);
+        if (ownerId == null) {
+            return null;
+        }
 
-        System.out.println("newEntry is " + newEtry);
+        Long expectedVersion = newEtry.getVersion();
+        journalEntryModel updated = journalChangeService.write(ownerId, journalChangeModel.UPSERT,
+                ops -> ops.findAndModify(new Query(updateCriteria(myid, ownerId, expectedVersion)),
+                        partialUpdate(newEtry), FindAndModifyOptions.options().returnNew(true), journalEntryModel.class),
+                entry -> List.of(myid));
+        if (updated == null) {
+            // only pay for the second lookup when the update did not apply
+            if (expectedVersion != null && journaleEntryRepo.findByIdAndOwnerId(myid, ownerId).isPresent()) {
+                throw new OptimisticLockingFailureException(
+                        "entry " + myid + " was changed by someone else, expected version " + expectedVersion);
+            }
+            return null;
+        }
+        return updated;
+    }
 
-        journalEntryModel oldEntry = journaleEntryRepo.findById(myid).orElse(null);
+    public SyncPage getChanges(String userName, String since, Integer limit) {
+        ObjectId ownerId = resolveOwnerId(userName);
+        if (ownerId == null) {
+            return null;
+        }
+        return journalChangeService.changesSince(ownerId, since, limit);
+    }
 
-        if (oldEntry != null) {
-            oldEntry.setContent(newEtry.getContent() != null && !newEtry.getContent().equals("") ? newEtry.getContent()
-                    : oldEntry.getContent());
+    static int pageSize(Integer limit) {
+        return limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+    }
 
-            oldEntry.setTitle(newEtry.getTitle() != null && !newEtry.getTitle().equals("") ? newEtry.getTitle()
-                    : oldEntry.getTitle());
+    static void validateQuery(String q) {
+        if (q == null || q.isBlank() || q.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("search text must be 1 to " + MAX_QUERY_LENGTH + " characters");
         }
+    }
+
+    // the words find the matches on the index, only the matches are sorted
+    static Query prefixQuery(ObjectId ownerId, String q, Pageable pageable) {
+        return new Query(SearchWords.prefixCriteria(ownerId, q)).with(pageable)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt"));
+    }
 
-        journaleEntryRepo.save(oldEntry);
-        return oldEntry;
+    // entry of the owner, and at the expected version when the client sent one
+    static Criteria updateCriteria(ObjectId id, ObjectId ownerId, Long expectedVersion) {
+        Criteria criteria = Criteria.where("_id").is(id).and("ownerId").is(ownerId);
+        if (expectedVersion != null) {
+            // entries written before versioning have no version field, they count as version 0
+            criteria = expectedVersion == 0
+                    ? criteria.orOperator(Criteria.where("version").is(0L), Criteria.where("version").exists(false))
+                    : criteria.and("version").is(expectedVersion);
+        }
+        return criteria;
+    }
 
+    // $set of the non empty fields only
+    static Update partialUpdate(journalEntryModel newEtry) {
+        Update update = new Update().set("updatedAt", LocalDateTime.now()).inc("version", 1);
+        if (newEtry.getContent() != null && !newEtry.getContent().equals("")) {
+            update.set("content", newEtry.getContent());
+            update.set(SearchWords.CONTENT_FIELD, SearchWords.of(newEtry.getContent()));
+        }
+        if (newEtry.getTitle() != null && !newEtry.getTitle().equals("")) {
+            update.set("title", newEtry.getTitle());
+            update.set(SearchWords.TITLE_FIELD, SearchWords.of(newEtry.getTitle()));
+        }
+        return update;
+    }
+
+    // the authenticated principal already knows its id, only look the user up otherwise. A user
+    // the ownerId backfill has not reached yet is migrated here, before anything reads by ownerId
+    public ObjectId resolveOwnerId(String userName) {
+        ObjectId ownerId;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails principal
+                && principal.getId() != null && principal.getUsername().equals(userName)) {
+            ownerId = principal.getId();
+        } else {
+            userModel user = userRepo.findIdByuserName(userName);
+            ownerId = user != null ? user.getId() : null;
+        }
+        journalOwnerMigration.ensureMigrated(ownerId);
+        return ownerId;
     }
 
 }
@@ -0,0 +1,79 @@
+package com.ms19.jourenal_apk.Services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.ms19.jourenal_apk.entity.journalVersionModel;
+
+@Service
+public class JournalVersionService {
+
+    public static final FindAndModifyOptions BUMP_OPTIONS = FindAndModifyOptions.options().upsert(true).returnNew(true);
+
+    // updatedAt comes from the clock of whichever instance wrote, allow for them to differ
+    private static final long CLOCK_SKEW_MS = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // call after every write to one of the owner's entries, returns the new version
+    public long bump(ObjectId ownerId) {
+        return bump(ownerId, 1);
+    }
+
+    public long bump(ObjectId ownerId, int count) {
+        journalVersionModel version = mongoTemplate.findAndModify(byOwner(ownerId), bumpUpdate(count),
+                BUMP_OPTIONS, journalVersionModel.class);
+        return version.getVersion();
+    }
+
+    // the bump as query and update, shared with the reactive services
+    public Query byOwner(ObjectId ownerId) {
+        return new Query(Criteria.where("_id").is(ownerId));
+    }
+
+    public Update bumpUpdate(int count) {
+        return new Update().inc("version", count).set("updatedAt", LocalDateTime.now());
+    }
+
+    // version 0 for a journal that was never written since versions were introduced
+    public journalVersionModel get(ObjectId ownerId) {
+        journalVersionModel version = mongoTemplate.findById(ownerId, journalVersionModel.class);
+        return version != null ? version : unversioned(ownerId);
+    }
+
+    public journalVersionModel unversioned(ObjectId ownerId) {
+        journalVersionModel version = new journalVersionModel();
+        version.setId(ownerId);
+        return version;
+    }
+
+    public String etag(journalVersionModel version) {
+        return "W/\"" + version.getId().toHexString() + "-" + version.getVersion() + "\"";
+    }
+
+    // -1 when unknown, which makes Spring skip the Last-Modified check and leave it to the
+    // ETag (the version counter). If-Modified-Since only has whole seconds, so it is also -1
+    // while the last write is in the current second (give or take the clock skew): a client
+    // that read now could not tell that write from a later one in the same second. After that,
+    // any later write is at least one whole second after the Last-Modified it was given.
+    public long lastModified(journalVersionModel version) {
+        if (version.getUpdatedAt() == null) {
+            return -1;
+        }
+        long updatedAt = version.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (updatedAt / 1000 >= (System.currentTimeMillis() - CLOCK_SKEW_MS) / 1000) {
+            return -1;
+        }
+        return updatedAt;
+    }
+}
@@ -0,0 +1,377 @@
+package com.ms19.jourenal_apk.Services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ms19.jourenal_apk.Repository.MailDeadLetterRepo;
+import com.ms19.jourenal_apk.Repository.MailOutboxRepo;
+import com.ms19.jourenal_apk.config.IoThreads;
+import com.ms19.jourenal_apk.entity.mailDeadLetterModel;
+import com.ms19.jourenal_apk.entity.outboxMailModel;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+
+// Mail is queued here and sent by a small worker pool, so callers never wait for SMTP.
+// Each worker drains up to batch-size messages and hands them to JavaMailSender in one
+// call, which sends the whole batch over a single SMTP connection. Failed messages are
+// retried with exponential backoff and end up in the mailDeadLetter collection.
+// A mail is stored in the mailOutbox collection before enqueue returns its tracking id and
+// removed once it is sent or dead-lettered, so accepted mail survives a restart: rows whose
+// lease ran out are taken over by the recovery pass of any instance.
+@Service
+@Slf4j
+public class MailOutbox {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String SENT = "SENT";
+    public static final String RETRYING = "RETRYING";
+    public static final String DEAD_LETTER = "DEAD_LETTER";
+
+    @Autowired
+    private JavaMailSender javaMailSender;
+
+    @Autowired
+    private MailDeadLetterRepo mailDeadLetterRepo;
+
+    @Autowired
+    private MailOutboxRepo mailOutboxRepo;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private IoThreads ioThreads;
+
+    @Value("${journal.mail.outbox.capacity:1000}")
+    private int capacity;
+
+    @Value("${journal.mail.outbox.workers:2}")
+    private int workers;
+
+    @Value("${journal.mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${journal.mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${journal.mail.outbox.backoff-ms:2000}")
+    private long backoffMs;
+
+    @Value("${journal.mail.outbox.max-backoff-ms:60000}")
+    private long maxBackoffMs;
+
+    // how long a stored mail belongs to the instance that accepted it, must outlast its retries
+    @Value("${journal.mail.outbox.lease-ms:900000}")
+    private long leaseMs;
+
+    @Value("${journal.mail.outbox.recover-ms:60000}")
+    private long recoverMs;
+
+    private BlockingQueue<OutgoingMail> queue;
+    private ExecutorService workerPool;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer sendTimer;
+    private Counter sentCounter;
+    private Counter retriedCounter;
+    private Counter deadLetterCounter;
+
+    // last known state of recently queued mail, looked up by tracking id
+    private final Cache<String, String> statuses = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofHours(24))
+            .build();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        // one SMTP round trip per batch; messages by what happened to them
+        sendTimer = Timer.builder("journal.mail.send")
+                .description("sending one batch over SMTP")
+                .register(meterRegistry);
+        sentCounter = mailCounter("sent");
+        retriedCounter = mailCounter("retried");
+        deadLetterCounter = mailCounter("dead_letter");
+        Gauge.builder("journal.mail.queue", this, MailOutbox::getQueueSize)
+                .description("mails waiting to be sent")
+                .register(meterRegistry);
+        // the worker count caps SMTP concurrency, only the kind of thread follows spring.threads.virtual
+        workerPool = Executors.newFixedThreadPool(workers, ioThreads.threadFactory("mail-outbox-"));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(ioThreads.threadFactory("mail-outbox-retry-"));
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            workerPool.submit(this::workLoop);
+        }
+        retryScheduler.scheduleWithFixedDelay(this::recover, 0, recoverMs, TimeUnit.MILLISECONDS);
+    }
+
+    private Counter mailCounter(String status) {
+        return Counter.builder("journal.mail.messages")
+                .tag("status", status)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        retryScheduler.shutdownNow();
+        workerPool.shutdown();
+        try {
+            workerPool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.warn("mail outbox stopped with {} unsent messages, they are sent again once their lease runs out",
+                    queue.size());
+        }
+    }
+
+    // returns the tracking id once the mail is stored, or null when the queue is full or the
+    // store failed and the mail was not accepted
+    public String enqueue(String to, String subject, String body, boolean html) {
+        if (queue.remainingCapacity() == 0) {
+            log.warn("mail outbox is full, rejecting mail to {}", to);
+            return null;
+        }
+        OutgoingMail mail = new OutgoingMail(UUID.randomUUID().toString(), to, subject, body, html, 0);
+        try {
+            mailOutboxRepo.insert(toRow(mail));
+        } catch (Exception e) {
+            log.error("could not store mail to {}", to, e);
+            return null;
+        }
+        // before the offer, a worker may send it right away
+        statuses.put(mail.trackingId(), QUEUED);
+        if (!queue.offer(mail)) {
+            log.warn("mail outbox is full, rejecting mail to {}", to);
+            statuses.invalidate(mail.trackingId());
+            forget(List.of(mail.trackingId()));
+            return null;
+        }
+        return mail.trackingId();
+    }
+
+    public String getStatus(String trackingId) {
+        return statuses.getIfPresent(trackingId);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                OutgoingMail first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<OutgoingMail> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("mail outbox worker failed", e);
+            }
+        }
+    }
+
+    private void sendBatch(List<OutgoingMail> batch) {
+        Map<MimeMessage, OutgoingMail> messages = new IdentityHashMap<>();
+        for (OutgoingMail mail : batch) {
+            try {
+                messages.put(toMimeMessage(mail), mail);
+            } catch (Exception e) {
+                // a message that cannot even be built will not get better with a retry
+                deadLetter(mail, e.getMessage());
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<String> sent = new ArrayList<>(messages.size());
+        try {
+            javaMailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            messages.values().forEach(mail -> sent.add(mail.trackingId()));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            for (Map.Entry<MimeMessage, OutgoingMail> entry : messages.entrySet()) {
+                // no per message failures means the connection itself failed, retry them all
+                if (failed.isEmpty() || failed.containsKey(entry.getKey())) {
+                    Exception cause = failed.getOrDefault(entry.getKey(), e);
+                    retry(entry.getValue(), cause.getMessage());
+                } else {
+                    sent.add(entry.getValue().trackingId());
+                }
+            }
+        } catch (Exception e) {
+            messages.values().forEach(mail -> retry(mail, e.getMessage()));
+        } finally {
+            sample.stop(sendTimer);
+        }
+        if (!sent.isEmpty()) {
+            sent.forEach(id -> statuses.put(id, SENT));
+            sentCounter.increment(sent.size());
+            forget(sent);
+        }
+    }
+
+    private MimeMessage toMimeMessage(OutgoingMail mail) throws Exception {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "utf-8");
+        helper.setTo(mail.to());
+        helper.setSubject(mail.subject());
+        helper.setText(mail.body(), mail.html());
+        return mimeMessage;
+    }
+
+    private void retry(OutgoingMail mail, String error) {
+        OutgoingMail next = mail.nextAttempt();
+        if (next.attempts() >= maxAttempts) {
+            deadLetter(next, error);
+            return;
+        }
+        if (!running) {
+            // shutting down, the stored copy is sent again after its lease
+            return;
+        }
+        long delay = Math.min(maxBackoffMs, backoffMs << (next.attempts() - 1));
+        statuses.put(mail.trackingId(), RETRYING);
+        retriedCounter.increment();
+        log.warn("could not send mail {} (attempt {}), retrying in {} ms: {}", mail.trackingId(), next.attempts(),
+                delay, error);
+        try {
+            // the lease has to outlast the wait, or another instance would take the mail over
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(mail.trackingId())),
+                    new Update().set("attempts", next.attempts())
+                            .set("leaseUntil", LocalDateTime.now().plus(Duration.ofMillis(delay + leaseMs))),
+                    outboxMailModel.class);
+        } catch (Exception e) {
+            log.warn("could not extend the lease of mail {}", mail.trackingId(), e);
+        }
+        retryScheduler.schedule(() -> {
+            if (!queue.offer(next)) {
+                // not the mail's fault, the stored copy is picked up again after its lease
+                log.warn("mail outbox is full, mail {} waits for its lease to run out", next.trackingId());
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void deadLetter(OutgoingMail mail, String error) {
+        statuses.put(mail.trackingId(), DEAD_LETTER);
+        deadLetterCounter.increment();
+        log.error("giving up on mail {} to {} after {} attempts: {}", mail.trackingId(), mail.to(), mail.attempts(),
+                error);
+        try {
+            mailDeadLetterModel deadLetter = new mailDeadLetterModel();
+            deadLetter.setTrackingId(mail.trackingId());
+            deadLetter.setTo(mail.to());
+            deadLetter.setSubject(mail.subject());
+            deadLetter.setBody(mail.body());
+            deadLetter.setHtml(mail.html());
+            deadLetter.setAttempts(mail.attempts());
+            deadLetter.setLastError(error);
+            deadLetter.setFailedAt(LocalDateTime.now());
+            mailDeadLetterRepo.save(deadLetter);
+            forget(List.of(mail.trackingId()));
+        } catch (Exception e) {
+            log.error("could not store dead letter for mail {}", mail.trackingId(), e);
+        }
+    }
+
+    // takes over stored mail whose lease ran out, accepted by an instance that stopped before
+    // sending it (this one too, before a restart)
+    private void recover() {
+        int recovered = 0;
+        try {
+            while (running && queue.remainingCapacity() > 0) {
+                LocalDateTime now = LocalDateTime.now();
+                outboxMailModel row = mongoTemplate.findAndModify(
+                        new Query(Criteria.where("leaseUntil").lt(now)),
+                        new Update().set("leaseUntil", now.plus(Duration.ofMillis(leaseMs))),
+                        outboxMailModel.class);
+                if (row == null) {
+                    break;
+                }
+                OutgoingMail mail = new OutgoingMail(row.getId(), row.getTo(), row.getSubject(), row.getBody(),
+                        row.isHtml(), row.getAttempts());
+                statuses.put(mail.trackingId(), QUEUED);
+                if (!queue.offer(mail)) {
+                    // filled up meanwhile, it is picked up again after this lease
+                    statuses.invalidate(mail.trackingId());
+                    break;
+                }
+                recovered++;
+            }
+        } catch (Exception e) {
+            log.error("could not recover stored mail", e);
+        }
+        if (recovered > 0) {
+            log.info("recovered {} stored mails whose lease ran out", recovered);
+        }
+    }
+
+    private outboxMailModel toRow(OutgoingMail mail) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxMailModel row = new outboxMailModel();
+        row.setId(mail.trackingId());
+        row.setTo(mail.to());
+        row.setSubject(mail.subject());
+        row.setBody(mail.body());
+        row.setHtml(mail.html());
+        row.setAttempts(mail.attempts());
+        row.setLeaseUntil(now.plus(Duration.ofMillis(leaseMs)));
+        row.setCreatedAt(now);
+        return row;
+    }
+
+    // sent or dead-lettered, a row left behind would be sent again after its lease
+    private void forget(List<String> trackingIds) {
+        try {
+            mailOutboxRepo.deleteAllById(trackingIds);
+        } catch (Exception e) {
+            log.warn("could not remove {} mails from the stored outbox, they may be sent twice", trackingIds.size(), e);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.ms19.jourenal_apk.Services;
+
+// one message waiting in the MailOutbox, attempts counts failed sends so far
+public record OutgoingMail(String trackingId, String to, String subject, String body, boolean html, int attempts) {
+
+    public OutgoingMail nextAttempt() {
+        return new OutgoingMail(trackingId, to, subject, body, html, attempts + 1);
+    }
+}
@@ -0,0 +1,212 @@
+package com.ms19.jourenal_apk.Services;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.ReactiveMongoTransactionManager;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.mongodb.MongoException;
+import com.ms19.jourenal_apk.Repository.ReactiveJournalEntryRepo;
+import com.ms19.jourenal_apk.Response.BulkResult;
+import com.ms19.jourenal_apk.Response.CursorPage;
+import com.ms19.jourenal_apk.Response.SearchPage;
+import com.ms19.jourenal_apk.Response.SyncPage;
+import com.ms19.jourenal_apk.entity.journalChangeModel;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.entity.journalVersionModel;
+import com.ms19.jourenal_apk.utils.SearchWords;
+
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+// JournalEntryServices on reactive Mongo. Takes the owner id from the caller (the reactive
+// principal carries it) and writes the same journal version and change log documents, so
+// conditional GETs and delta sync see writes from both stacks. An entry write, its version bump
+// and its change record are one reactive transaction, as JournalChangeService.write does on the
+// blocking driver; only the bulk import runs on the blocking services.
+@Service
+@Profile("reactive")
+public class ReactiveJournalEntryServices {
+
+    @Autowired
+    private ReactiveJournalEntryRepo reactiveJournalEntryRepo;
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    private JournalVersionService journalVersionService;
+
+    @Autowired
+    private JournalChangeService journalChangeService;
+
+    @Autowired
+    private JournalBulkService journalBulkService;
+
+    @Autowired
+    private ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory;
+
+    // write conflicts between writers of the same owner, retried like the driver's withTransaction does
+    private static final int MAX_TRANSACTION_RETRIES = 5;
+
+    // not a bean: a second transaction manager would make @Transactional ambiguous
+    private TransactionalOperator transactionalOperator;
+
+    @PostConstruct
+    public void init() {
+        ReactiveMongoTransactionManager transactionManager = new ReactiveMongoTransactionManager(
+                reactiveMongoDatabaseFactory, JournalChangeService.PUBLISH_OPTIONS);
+        transactionalOperator = TransactionalOperator.create(transactionManager);
+    }
+
+    public Mono<journalEntryModel> saveEntry(journalEntryModel myEntry, ObjectId ownerId, String userName) {
+        myEntry.setOwnerId(ownerId);
+        myEntry.setOwnerName(userName);
+        myEntry.setCreatedAt(LocalDateTime.now());
+        myEntry.setUpdatedAt(myEntry.getCreatedAt());
+        myEntry.setVersion(null);
+        SearchWords.fill(myEntry);
+        // insert, not save: a retried transaction inserts again with the id the first try assigned
+        return withChange(ownerId, journalChangeModel.UPSERT, reactiveMongoTemplate.insert(myEntry),
+                journalEntryModel::getId);
+    }
+
+    public Flux<journalEntryModel> getJournalEntries(ObjectId ownerId) {
+        return reactiveJournalEntryRepo.findByOwnerIdOrderByCreatedAtDesc(ownerId);
+    }
+
+    public Mono<CursorPage<journalEntryModel>> getJournalEntriesPage(ObjectId ownerId, String cursor, Integer limit) {
+        int size = JournalEntryServices.pageSize(limit);
+        Pageable pageable = PageRequest.of(0, size + 1);
+        Flux<journalEntryModel> entries = cursor == null || cursor.isBlank()
+                ? reactiveJournalEntryRepo.findByOwnerIdOrderByIdDesc(ownerId, pageable)
+                : reactiveJournalEntryRepo.findByOwnerIdAndIdLessThanOrderByIdDesc(ownerId, new ObjectId(cursor), pageable);
+
+        return entries.collectList().map(list -> {
+            if (list.size() <= size) {
+                return new CursorPage<>(list, null);
+            }
+            list = list.subList(0, size);
+            return new CursorPage<>(list, list.get(size - 1).getId().toHexString());
+        });
+    }
+
+    public Mono<SearchPage<journalEntryModel>> searchEntries(ObjectId ownerId, String q, boolean prefix, Integer page,
+            Integer limit) {
+        JournalEntryServices.validateQuery(q);
+        int size = JournalEntryServices.pageSize(limit);
+        int pageNo = page == null || page < 0 ? 0 : page;
+        Pageable pageable = PageRequest.of(pageNo, size);
+
+        Flux<journalEntryModel> entries = prefix
+                ? reactiveMongoTemplate.find(JournalEntryServices.prefixQuery(ownerId, q, pageable), journalEntryModel.class)
+                : reactiveJournalEntryRepo.findByOwnerIdOrderByScoreDesc(ownerId,
+                        TextCriteria.forDefaultLanguage().matching(q), pageable);
+        return entries.collectList().map(list -> new SearchPage<>(list, pageNo, size, list.size() == size));
+    }
+
+    public Mono<journalEntryModel> getOneEntry(ObjectId id, ObjectId ownerId) {
+        return reactiveJournalEntryRepo.findByIdAndOwnerId(id, ownerId);
+    }
+
+    public Mono<journalEntryModel> deleteEntry(ObjectId id, ObjectId ownerId) {
+        return withChange(ownerId, journalChangeModel.DELETE,
+                reactiveMongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(id).and("ownerId").is(ownerId)),
+                        journalEntryModel.class),
+                deleted -> id);
+    }
+
+    // empty when there is no such entry, OptimisticLockingFailureException when the version moved on
+    public Mono<journalEntryModel> updateOneEntry(ObjectId id, journalEntryModel newEtry, ObjectId ownerId) {
+        Long expectedVersion = newEtry.getVersion();
+        return withChange(ownerId, journalChangeModel.UPSERT,
+                reactiveMongoTemplate.findAndModify(
+                        new Query(JournalEntryServices.updateCriteria(id, ownerId, expectedVersion)),
+                        JournalEntryServices.partialUpdate(newEtry), FindAndModifyOptions.options().returnNew(true),
+                        journalEntryModel.class),
+                updated -> id)
+                .switchIfEmpty(Mono.defer(() -> expectedVersion == null ? Mono.empty()
+                        : reactiveJournalEntryRepo.findByIdAndOwnerId(id, ownerId)
+                                .flatMap(current -> Mono.error(new OptimisticLockingFailureException("entry " + id
+                                        + " was changed by someone else, expected version " + expectedVersion)))));
+    }
+
+    public Mono<journalVersionModel> getVersion(ObjectId ownerId) {
+        return reactiveMongoTemplate.findById(ownerId, journalVersionModel.class)
+                .defaultIfEmpty(journalVersionService.unversioned(ownerId));
+    }
+
+    // bulk import is not on the hot path and writes in chunks of hundreds, it reuses the
+    // blocking service on the bounded elastic scheduler instead of being written twice
+    public Mono<BulkResult> importEntries(String userName, InputStream body) {
+        return Mono.fromCallable(() -> journalBulkService.importEntries(userName, body))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // JournalChangeService.changesSince with the reads on reactive Mongo
+    public Mono<SyncPage> getChanges(ObjectId ownerId, String since, Integer limit) {
+        return Mono.defer(() -> {
+            long now = System.currentTimeMillis();
+            if (since == null || since.isBlank()) {
+                return getVersion(ownerId).map(version -> journalChangeService.startPage(version.getVersion(), now));
+            }
+            JournalChangeService.SyncToken token = journalChangeService.parseToken(since, now);
+            int size = JournalChangeService.syncPageSize(limit);
+            return reactiveMongoTemplate.find(journalChangeService.changesQuery(ownerId, token, size),
+                    journalChangeModel.class)
+                    .collectList()
+                    .flatMap(changes -> reactiveJournalEntryRepo
+                            .findAllById(journalChangeService.upsertedIds(changes, size))
+                            .collectList()
+                            .map(found -> journalChangeService.page(ownerId, changes, size, found, token, now)));
+        });
+    }
+
+    // runs the write and, when it returned something, bumps the version and records the change,
+    // all in one transaction; the write is subscribed again when the transaction is retried
+    private <T> Mono<T> withChange(ObjectId ownerId, String op, Mono<T> write,
+            Function<T, ObjectId> changedId) {
+        return write
+                .flatMap(result -> recordChange(ownerId, changedId.apply(result), op).thenReturn(result))
+                .as(transactionalOperator::transactional)
+                .retryWhen(Retry.backoff(MAX_TRANSACTION_RETRIES, Duration.ofMillis(10))
+                        .filter(ReactiveJournalEntryServices::isTransient)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    // JournalChangeService.writeChanges for one entry
+    private Mono<Void> recordChange(ObjectId ownerId, ObjectId entryId, String op) {
+        return reactiveMongoTemplate.findAndModify(journalVersionService.byOwner(ownerId),
+                journalVersionService.bumpUpdate(1), JournalVersionService.BUMP_OPTIONS, journalVersionModel.class)
+                .flatMap(version -> reactiveMongoTemplate.upsert(journalChangeService.byEntry(entryId),
+                        journalChangeService.changeUpdate(ownerId, version.getVersion(), op, LocalDateTime.now()),
+                        journalChangeModel.class))
+                .then();
+    }
+
+    private static boolean isTransient(Throwable e) {
+        Throwable cause = e instanceof DataAccessException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof MongoException mongo
+                && mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+    }
+}
@@ -0,0 +1,84 @@
+package com.ms19.jourenal_apk.Services;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsPasswordService;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ms19.jourenal_apk.Repository.ReactiveUserRepo;
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import reactor.core.publisher.Mono;
+
+// reactive UserDetailServiceImpl: same principal cache, but a miss is a non-blocking lookup
+// and concurrent misses for one user share it
+@Component
+@Profile("reactive")
+public class ReactiveUserDetailServiceImpl implements ReactiveUserDetailsService, ReactiveUserDetailsPasswordService {
+
+    @Autowired
+    private ReactiveUserRepo reactiveUserRepo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${journal.security.user-cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${journal.security.user-cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    private AsyncCache<String, UserDetails> userCache;
+
+    @PostConstruct
+    public void initCache() {
+        userCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .recordStats()
+                .buildAsync();
+        // UserDetailServiceImpl is a bean under this profile too and publishes "userDetails",
+        // the same name and tags would only keep whichever registered first
+        CaffeineCacheMetrics.monitor(meterRegistry, userCache.synchronous(), "reactiveUserDetails");
+    }
+
+    // empty when the user does not exist, a null result is not kept by the cache
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        return Mono.fromFuture(() -> userCache.get(username, (name, executor) -> reactiveUserRepo
+                .findAuthByuserName(name)
+                .<UserDetails>map(CustomUserDetails::new)
+                .toFuture()));
+    }
+
+    // rehash on login, see UserDetailServiceImpl.updatePassword
+    @Override
+    public Mono<UserDetails> updatePassword(UserDetails user, String newPassword) {
+        return reactiveUserRepo.updatePasswordByuserName(user.getUsername(), newPassword)
+                .doFinally(signal -> evict(user.getUsername()))
+                .thenReturn(user);
+    }
+
+    // -1 when the user does not exist anymore
+    public Mono<Integer> currentTokenVersion(String username) {
+        return findByUsername(username)
+                .map(userDetails -> ((CustomUserDetails) userDetails).getTokenVersion())
+                .defaultIfEmpty(-1);
+    }
+
+    public void evict(String username) {
+        if (username != null) {
+            userCache.synchronous().invalidate(username);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ms19.jourenal_apk.Services;
+
+import java.util.Arrays;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.ms19.jourenal_apk.Repository.ReactiveUserRepo;
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.Security.LoginThrottle;
+import com.ms19.jourenal_apk.entity.userModel;
+import com.ms19.jourenal_apk.scheduler.JournalOwnerMigration;
+import com.ms19.jourenal_apk.scheduler.JournalReaper;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// the parts of UserServices the reactive journal API needs: sign up, owner lookup and delete
+@Service
+@Profile("reactive")
+public class ReactiveUserServices {
+
+    @Autowired
+    private ReactiveUserRepo reactiveUserRepo;
+
+    @Autowired
+    private ReactiveUserDetailServiceImpl reactiveUserDetailService;
+
+    @Autowired
+    private JournalReaper journalReaper;
+
+    @Autowired
+    private JournalOwnerMigration journalOwnerMigration;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    public Mono<userModel> saveNewUser(userModel user) {
+        // bcrypt is slow on purpose, keep it off the event loop
+        return Mono.fromCallable(() -> passwordEncoder.encode(user.getPassword()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(hash -> {
+                    user.setPassword(hash);
+                    user.setRole(Arrays.asList("USER"));
+                    return reactiveUserRepo.save(user);
+                })
+                .doOnNext(saved -> loginThrottle.forgetUnknownUser(saved.getUserName()));
+    }
+
+    // the principal knows its id unless it came from a token issued before ids were embedded.
+    // A user the ownerId backfill has not reached yet is migrated first, as in JournalEntryServices
+    public Mono<ObjectId> resolveOwnerId(CustomUserDetails principal) {
+        Mono<ObjectId> ownerId = principal.getId() != null
+                ? Mono.just(principal.getId())
+                : reactiveUserRepo.findIdByuserName(principal.getUsername()).map(userModel::getId);
+        return ownerId.flatMap(id -> journalOwnerMigration.mayNeedMigration(id)
+                ? Mono.fromRunnable(() -> journalOwnerMigration.ensureMigrated(id))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .thenReturn(id)
+                : Mono.just(id));
+    }
+
+    // the cleanup is stored before the user is deleted, as in UserServices.deleteUser
+    public Mono<userModel> deleteUser(String userName) {
+        return reactiveUserRepo.findIdByuserName(userName)
+                .flatMap(existing -> Mono.fromRunnable(() -> {
+                    // the reaper only finds entries by ownerId, legacy refs go away with the user document
+                    journalOwnerMigration.ensureMigrated(existing.getId());
+                    journalReaper.enqueue(existing.getId());
+                })
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(reactiveUserRepo.deleteByuserName(userName)))
+                .flatMap(user -> Mono.fromRunnable(() -> refreshTokenService.revokeAllForUser(user.getId()))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .thenReturn(user))
+                .doFinally(signal -> reactiveUserDetailService.evict(userName));
+    }
+}
@@ -0,0 +1,151 @@
+package com.ms19.jourenal_apk.Services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+
+import com.ms19.jourenal_apk.Response.TokenPair;
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.Security.TokenRevocationList;
+import com.ms19.jourenal_apk.entity.refreshTokenModel;
+import com.ms19.jourenal_apk.utils.JwtUtil;
+import com.ms19.jourenal_apk.utils.VerifiedToken;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Short lived access tokens plus rotating refresh tokens. Login starts a family, every refresh
+// uses up the presented token and returns a new pair of the same family. Logout and credential
+// changes drop the refresh tokens and put the last access token of each family on the
+// revocation list, so they take effect right away without a per-request user lookup.
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserDetailServiceImpl userDetailService;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Value("${journal.security.refresh.ttl-days:30}")
+    private long ttlDays;
+
+    private final SecureRandom random = new SecureRandom();
+
+    // after a successful login
+    public TokenPair issue(CustomUserDetails user) {
+        return issue(user, new ObjectId().toHexString());
+    }
+
+    // BadCredentialsException when the token is unknown, expired or already used
+    public TokenPair refresh(String refreshToken) {
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new BadCredentialsException("refresh token is missing");
+        }
+        String id = hash(refreshToken);
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenModel current = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(id).and("used").is(false).and("expireAt").gt(now)),
+                new Update().set("used", true), refreshTokenModel.class);
+        if (current == null) {
+            refreshTokenModel known = mongoTemplate.findById(id, refreshTokenModel.class);
+            if (known != null && known.isUsed()) {
+                // the token was used before, someone else has a copy of this login
+                log.warn("refresh token reused for user {}, revoking the session", known.getUserName());
+                revokeFamily(known.getFamily());
+            }
+            throw new BadCredentialsException("refresh token is invalid or expired");
+        }
+        // current roles and token version, and the user still has to exist
+        CustomUserDetails user = (CustomUserDetails) userDetailService.loadUserByUsername(current.getUserName());
+        return issue(user, current.getFamily());
+    }
+
+    // ends one login: the presented access token and, when given, the refresh token's family
+    public void logout(VerifiedToken accessToken, String refreshToken) {
+        if (accessToken != null) {
+            tokenRevocationList.revoke(accessToken.id(), accessToken.expiration());
+        }
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenModel known = mongoTemplate.findById(hash(refreshToken), refreshTokenModel.class);
+            if (known != null) {
+                revokeFamily(known.getFamily());
+            }
+        }
+    }
+
+    // ends every login of the user, on password change or delete
+    public void revokeAllForUser(ObjectId userId) {
+        if (userId != null) {
+            revoke(Query.query(Criteria.where("userId").is(userId)));
+        }
+    }
+
+    private void revokeFamily(String family) {
+        revoke(Query.query(Criteria.where("family").is(family)));
+    }
+
+    private void revoke(Query tokens) {
+        LocalDateTime now = LocalDateTime.now();
+        List<refreshTokenModel> live = mongoTemplate.find(Query.of(tokens)
+                .addCriteria(Criteria.where("accessExpireAt").gt(now)), refreshTokenModel.class);
+        for (refreshTokenModel token : live) {
+            tokenRevocationList.revoke(token.getAccessJti(), token.getAccessExpireAt());
+        }
+        mongoTemplate.remove(tokens, refreshTokenModel.class);
+    }
+
+    private TokenPair issue(CustomUserDetails user, String family) {
+        String jti = UUID.randomUUID().toString();
+        String accessToken = jwtUtil.generateToken(user, jti);
+        LocalDateTime now = LocalDateTime.now();
+
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenModel model = new refreshTokenModel();
+        model.setId(hash(refreshToken));
+        model.setUserId(user.getId());
+        model.setUserName(user.getUsername());
+        model.setFamily(family);
+        model.setAccessJti(jti);
+        model.setAccessExpireAt(now.plusSeconds(jwtUtil.getAccessTtlSeconds()));
+        model.setCreatedAt(now);
+        model.setExpireAt(now.plusDays(ttlDays));
+        mongoTemplate.insert(model);
+
+        return new TokenPair(accessToken, refreshToken, "Bearer", jwtUtil.getAccessTtlSeconds());
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -33,25 +33,65 @@
 
 package com.ms19.jourenal_apk.Services;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.ms19.jourenal_apk.Repository.UserRepo;
 import com.ms19.jourenal_apk.Security.CustomUserDetails;
 import com.ms19.jourenal_apk.entity.userModel;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+
 @Component
-public class UserDetailServiceImpl implements UserDetailsService {
+public class UserDetailServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     @Autowired
     private UserRepo userRepo;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${journal.security.user-cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${journal.security.user-cache.ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    // JwtFilter calls loadUserByUsername on every request, keep the principal in memory
+    // so an authenticated request does not need a Mongo round trip
+    private Cache<String, UserDetails> userCache;
+
+    @PostConstruct
+    public void initCache() {
+        userCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userCache, "userDetails");
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        userModel user = userRepo.findByuserName(username);
+        return userCache.get(username, this::loadFromDb);
+    }
+
+    private UserDetails loadFromDb(String username) {
+        userModel user = userRepo.findAuthByuserName(username);
 
         if (user != null) {
             return new CustomUserDetails(user); // Return the custom UserDetails object
@@ -59,4 +99,41 @@ public class UserDetailServiceImpl implements UserDetailsService {
 
         throw new UsernameNotFoundException("Username not found: " + username);
     }
+
+    // called by the authentication provider after a successful login when the stored hash
+    // has another bcrypt cost than BoundedBCryptPasswordEncoder uses now
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepo.updatePasswordByuserName(user.getUsername(), newPassword);
+        evict(user.getUsername());
+        return user;
+    }
+
+    // current token version of the user, -1 when the user does not exist anymore;
+    // served from the principal cache so it is a memory lookup most of the time
+    public int currentTokenVersion(String username) {
+        try {
+            return ((CustomUserDetails) loadUserByUsername(username)).getTokenVersion();
+        } catch (UsernameNotFoundException e) {
+            return -1;
+        }
+    }
+
+    // call this whenever a user's name, password or roles change or the user is removed
+    public void evict(String username) {
+        if (username != null) {
+            userCache.invalidate(username);
+        }
+    }
+
+    public Map<String, Object> getCacheStats() {
+        CacheStats stats = userCache.stats();
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("size", userCache.estimatedSize());
+        res.put("hitCount", stats.hitCount());
+        res.put("missCount", stats.missCount());
+        res.put("hitRate", stats.hitRate());
+        res.put("evictionCount", stats.evictionCount());
+        return res;
+    }
 }
@@ -0,0 +1,102 @@
+package com.ms19.jourenal_apk.Services;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ms19.jourenal_apk.Repository.UserMongoTempletRepo;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Writes users as NDJSON (one JSON object per line) straight from a Mongo cursor.
+// Only one document is in memory at a time and the cursor is only advanced as fast
+// as the client reads, so the export costs the same memory for 10 or 10M users.
+@Service
+@Slf4j
+public class UserExportService {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // fields a caller may ask for, the password hash is never exported
+    private static final Set<String> EXPORTABLE = Set.of("id", "userName", "email", "Role");
+    private static final List<String> DEFAULT_FIELDS = List.of("id", "userName", "email", "Role");
+    private static final int FLUSH_EVERY = 500;
+
+    @Autowired
+    private UserMongoTempletRepo userMongoTempletRepo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // fields is a comma separated list (null for the defaults); the body is gzipped when the client accepts it
+    public ResponseEntity<StreamingResponseBody> exportNdjson(String fields, String acceptEncoding) {
+        List<String> selected = parseFields(fields);
+        List<String> mongoFields = selected.stream().map(f -> f.equals("id") ? "_id" : f).toList();
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+            long count = 0;
+            try (Stream<Document> users = userMongoTempletRepo.streamUsers(mongoFields);
+                    JsonGenerator json = objectMapper.getFactory().createGenerator(target)) {
+                json.setRootValueSeparator(null);
+                for (Document user : (Iterable<Document>) users::iterator) {
+                    json.writeObject(toRow(user, selected));
+                    json.writeRaw('\n');
+                    if (++count % FLUSH_EVERY == 0) {
+                        json.flush();
+                    }
+                }
+            }
+            log.info("exported {} users", count);
+        };
+
+        ResponseEntity.BodyBuilder res = ResponseEntity.ok().contentType(NDJSON);
+        if (gzip) {
+            res.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return res.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).body(body);
+    }
+
+    private List<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return DEFAULT_FIELDS;
+        }
+        List<String> selected = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!EXPORTABLE.contains(name)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "field can not be exported: " + name);
+            }
+            selected.add(name);
+        }
+        return selected;
+    }
+
+    private Map<String, Object> toRow(Document user, List<String> selected) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : selected) {
+            Object value = user.get(field.equals("id") ? "_id" : field);
+            row.put(field, value instanceof ObjectId id ? id.toHexString() : value);
+        }
+        return row;
+    }
+}
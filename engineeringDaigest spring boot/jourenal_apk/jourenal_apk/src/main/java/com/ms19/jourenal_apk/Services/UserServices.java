@@ -4,32 +4,67 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import io.micrometer.core.annotation.Timed;
+
+import com.ms19.jourenal_apk.Repository.JournaleEntryRepo;
 import com.ms19.jourenal_apk.Repository.UserRepo;
+import com.ms19.jourenal_apk.Security.LoginThrottle;
 import com.ms19.jourenal_apk.entity.userModel;
+import com.ms19.jourenal_apk.scheduler.JournalOwnerMigration;
+import com.ms19.jourenal_apk.scheduler.JournalReaper;
 
+// timed like JournalEntryServices
 @Service
+@Timed(value = "journal.service", description = "user service calls")
 public class UserServices {
 
   @Autowired
   private UserRepo userRepo;
 
-  private static final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+  @Autowired
+  private JournaleEntryRepo journaleEntryRepo;
+
+  @Autowired
+  private UserDetailServiceImpl userDetailService;
+
+  @Autowired
+  private JournalVersionService journalVersionService;
+
+  @Autowired
+  private JournalReaper journalReaper;
+
+  @Autowired
+  private JournalOwnerMigration journalOwnerMigration;
+
+  @Autowired
+  private LoginThrottle loginThrottle;
+
+  @Autowired
+  private RefreshTokenService refreshTokenService;
+
+  // BoundedBCryptPasswordEncoder, hashes on its own bounded pool
+  @Autowired
+  private PasswordEncoder passwordEncoder;
 
   public userModel saveNewUser(userModel user) {
     user.setPassword(passwordEncoder.encode(user.getPassword()));
     user.setRole(Arrays.asList("USER"));
-    return userRepo.save(user);
+    userModel saved = userRepo.save(user);
+    loginThrottle.forgetUnknownUser(saved.getUserName());
+    return saved;
 
   }
 
   public userModel saveAdmin(userModel user) {
     user.setPassword(passwordEncoder.encode(user.getPassword()));
     user.setRole(Arrays.asList("USER", "ADMIN"));
-    return userRepo.save(user);
+    userModel saved = userRepo.save(user);
+    userDetailService.evict(saved.getUserName());
+    loginThrottle.forgetUnknownUser(saved.getUserName());
+    return saved;
 
   }
 
@@ -37,6 +72,24 @@ public class UserServices {
     userRepo.save(user);
   }
 
+  // the user is gone right away, the journal entries are removed in the background. The
+  // cleanup is stored before the user is deleted, so a crash in between cannot lose it
+  public userModel deleteUser(String userName) {
+    userModel existing = userRepo.findIdByuserName(userName);
+    if (existing == null) {
+      return null;
+    }
+    // the reaper only finds entries by ownerId, legacy refs go away with the user document
+    journalOwnerMigration.ensureMigrated(existing.getId());
+    journalReaper.enqueue(existing.getId());
+    userModel user = userRepo.deleteByuserName(userName);
+    userDetailService.evict(userName);
+    if (user != null) {
+      refreshTokenService.revokeAllForUser(user.getId());
+    }
+    return user;
+  }
+
   public List<userModel> getAllUser() {
     return userRepo.findAll();
   }
@@ -48,7 +101,18 @@ public class UserServices {
     }
     dbuser.setUserName(user.getUserName());
     dbuser.setPassword(user.getPassword());
-    return saveNewUser(dbuser);
+    // invalidates stateless tokens issued before this change
+    dbuser.setTokenVersion(dbuser.getTokenVersion() + 1);
+    userModel saved = saveNewUser(dbuser);
+    userDetailService.evict(username);
+    userDetailService.evict(saved.getUserName());
+    // other sessions have to log in again with the new credentials
+    refreshTokenService.revokeAllForUser(saved.getId());
+    if (!username.equals(saved.getUserName())) {
+      journaleEntryRepo.updateOwnerName(saved.getId(), saved.getUserName());
+      journalVersionService.bump(saved.getId());
+    }
+    return saved;
 
   }
 
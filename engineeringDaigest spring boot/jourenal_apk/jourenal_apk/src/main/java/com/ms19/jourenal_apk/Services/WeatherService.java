@@ -1,5 +1,11 @@
 package com.ms19.jourenal_apk.Services;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
@@ -7,8 +13,16 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ms19.jourenal_apk.config.IoThreads;
 import com.ms19.jourenal_apk.weatherApiRes.WeatherApiRes;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
@@ -18,26 +32,88 @@ public class WeatherService {
     @Value("${WEATHER_API_KEY}")
     private  String apiKey;
 
+    @Value("${weather.api.url:https://api.weatherstack.com/current?access_key=API_KEY&query=CITY}")
+    private String API;
+
+    // a cached value is served as is until refresh-after, then refreshed in the
+    // background while callers keep getting the old one; after expire-after it is dropped
+    @Value("${weather.cache.refresh-after-seconds:600}")
+    private long refreshAfterSeconds;
 
-    private static final String API = "https://api.weatherstack.com/current?access_key=API_KEY&query=CITY";
+    @Value("${weather.cache.expire-after-seconds:3600}")
+    private long expireAfterSeconds;
+
+    // how long a caller waits on a cold city before going on without weather
+    @Value("${weather.max-wait-ms:500}")
+    private long maxWaitMs;
 
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private IoThreads ioThreads;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ExecutorService fetchers;
+
+    // one entry per city; concurrent misses for a city share a single upstream call
+    private AsyncLoadingCache<String, WeatherApiRes> cache;
+
+    @PostConstruct
+    public void init() {
+        fetchers = ioThreads.newIoPool("weather-fetch-", 4);
+        cache = Caffeine.newBuilder()
+                .maximumSize(1000)
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds))
+                .expireAfterWrite(Duration.ofSeconds(expireAfterSeconds))
+                .executor(fetchers)
+                .recordStats()
+                .buildAsync(this::fetchWeather);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "weather");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchers.shutdownNow();
+    }
+
+    // null when the weather is not available within max-wait-ms
     public WeatherApiRes getWeather(String city) {
-    
-        log.info("api key is ",apiKey);
+        try {
+            return cache.get(city.toLowerCase()).get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            meterRegistry.counter("journal.weather.not_ready").increment();
+            log.warn("weather for {} is not ready yet", city);
+            return null;
+        } catch (ExecutionException e) {
+            log.error("could not get the weather for {}", city, e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private WeatherApiRes fetchWeather(String city) {
         // Replace placeholders in the URL
         String finalAPI = API.replace("API_KEY", apiKey).replace("CITY", city);
 
-        // Make the API call
-        ResponseEntity<WeatherApiRes> response = restTemplate.exchange(
-                finalAPI,
-                HttpMethod.GET,
-                null,
-                WeatherApiRes.class);
-
-        // Return the body of the response
-        return response.getBody();
+        // Make the API call, timed by outcome; the RestTemplate is not Boot's instrumented one
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ResponseEntity<WeatherApiRes> response = restTemplate.exchange(
+                    finalAPI,
+                    HttpMethod.GET,
+                    null,
+                    WeatherApiRes.class);
+            outcome = "success";
+            // Return the body of the response
+            return response.getBody();
+        } finally {
+            sample.stop(meterRegistry.timer("journal.weather.request", "outcome", outcome));
+        }
     }
 }
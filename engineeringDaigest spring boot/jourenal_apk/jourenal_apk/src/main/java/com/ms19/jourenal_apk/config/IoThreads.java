@@ -0,0 +1,57 @@
+package com.ms19.jourenal_apk.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+// Threads for our own blocking I/O pools (mail, weather, digest). With
+// spring.threads.virtual.enabled=true on Java 21+ Spring Boot already runs Tomcat requests
+// and @Scheduled tasks on virtual threads; this makes the pools follow the same switch.
+// On Java 17 the switch has no effect and everything stays on platform threads.
+@Component
+@Slf4j
+public class IoThreads {
+
+    @Autowired
+    private Environment environment;
+
+    private boolean virtual;
+
+    @PostConstruct
+    public void init() {
+        virtual = Threading.VIRTUAL.isActive(environment);
+        log.info("blocking I/O runs on {} threads", virtual ? "virtual" : "platform");
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public ThreadFactory threadFactory(String namePrefix) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(namePrefix).getVirtualThreadFactory();
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, namePrefix + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // `size` platform threads, or a new virtual thread per task when virtual threads are on
+    public ExecutorService newIoPool(String namePrefix, int size) {
+        return virtual ? Executors.newCachedThreadPool(threadFactory(namePrefix))
+                : Executors.newFixedThreadPool(size, threadFactory(namePrefix));
+    }
+}
@@ -0,0 +1,21 @@
+package com.ms19.jourenal_apk.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// Spring Boot already times every endpoint (http.server.requests) and Mongo command
+// (mongodb.driver.commands); this makes @Timed work on our own beans. Endpoint exposure,
+// histogram and SLO settings are in metrics.properties, application.properties overrides them
+@Configuration
+@PropertySource("classpath:metrics.properties")
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
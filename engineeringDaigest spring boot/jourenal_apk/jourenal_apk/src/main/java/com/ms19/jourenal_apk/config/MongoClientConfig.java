@@ -0,0 +1,93 @@
+package com.ms19.jourenal_apk.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.mongo.MongoConnectionDetails;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoCompressor;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Pool and wire settings for both Mongo clients (blocking and reactive). Anything the
+// connection string sets explicitly wins, these are the defaults for what it leaves out.
+@Configuration
+@Slf4j
+public class MongoClientConfig {
+
+    @Value("${journal.mongo.pool.max-size:100}")
+    private int maxPoolSize;
+
+    @Value("${journal.mongo.pool.min-size:0}")
+    private int minPoolSize;
+
+    // wait-queue timeout: how long a request waits for a free connection before it fails.
+    // The driver default is 2 minutes, long enough to hang every request thread
+    @Value("${journal.mongo.pool.max-wait-ms:2000}")
+    private long maxWaitMs;
+
+    // connections being opened at the same time, limits connection storms on a cold pool
+    @Value("${journal.mongo.pool.max-connecting:2}")
+    private int maxConnecting;
+
+    // 0 keeps idle connections open
+    @Value("${journal.mongo.pool.max-idle-ms:0}")
+    private long maxIdleMs;
+
+    // e.g. zstd,snappy,zlib; the server picks the first one it supports, empty sends uncompressed
+    @Value("${journal.mongo.compressors:}")
+    private String compressors;
+
+    @Autowired
+    private MongoPoolMetrics mongoPoolMetrics;
+
+    @Bean
+    public MongoClientSettingsBuilderCustomizer journalMongoClientSettings(MongoConnectionDetails connectionDetails) {
+        ConnectionString uri = connectionDetails.getConnectionString();
+        return builder -> {
+            builder.applyToConnectionPoolSettings(pool -> {
+                if (uri.getMaxConnectionPoolSize() == null) {
+                    pool.maxSize(maxPoolSize);
+                }
+                if (uri.getMinConnectionPoolSize() == null) {
+                    pool.minSize(minPoolSize);
+                }
+                if (uri.getMaxWaitTime() == null) {
+                    pool.maxWaitTime(maxWaitMs, TimeUnit.MILLISECONDS);
+                }
+                if (uri.getMaxConnecting() == null) {
+                    pool.maxConnecting(maxConnecting);
+                }
+                if (uri.getMaxConnectionIdleTime() == null && maxIdleMs > 0) {
+                    pool.maxConnectionIdleTime(maxIdleMs, TimeUnit.MILLISECONDS);
+                }
+                pool.addConnectionPoolListener(mongoPoolMetrics);
+            });
+            if (uri.getCompressorList().isEmpty() && !compressors.isBlank()) {
+                builder.compressorList(compressorList(compressors));
+            }
+        };
+    }
+
+    private static List<MongoCompressor> compressorList(String names) {
+        List<MongoCompressor> list = new ArrayList<>();
+        for (String name : names.split(",")) {
+            switch (name.trim().toLowerCase()) {
+                case "zstd" -> list.add(MongoCompressor.createZstdCompressor());
+                case "snappy" -> list.add(MongoCompressor.createSnappyCompressor());
+                case "zlib" -> list.add(MongoCompressor.createZlibCompressor());
+                case "" -> {
+                }
+                default -> throw new IllegalArgumentException("unknown mongo compressor " + name);
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ms19.jourenal_apk.config;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.ms19.jourenal_apk.entity.journalChangeModel;
+import com.ms19.jourenal_apk.entity.journalCleanupModel;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.entity.mailDeadLetterModel;
+import com.ms19.jourenal_apk.entity.outboxMailModel;
+import com.ms19.jourenal_apk.entity.refreshTokenModel;
+import com.ms19.jourenal_apk.entity.revokedTokenModel;
+
+import lombok.extern.slf4j.Slf4j;
+
+// creates the indexes declared on the journal entities even when
+// spring.data.mongodb.auto-index-creation is off
+@Component
+@Slf4j
+public class MongoIndexConfig {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public static final String TEXT_INDEX = "owner_text_idx";
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        ensureJournalIndexes(mongoTemplate);
+        ensureTokenIndexes(mongoTemplate);
+        ensureMailIndexes(mongoTemplate);
+        log.info("journal entry indexes are ready");
+    }
+
+    // refresh tokens and revoked access tokens, both expire through a TTL index
+    public static void ensureTokenIndexes(MongoTemplate mongoTemplate) {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        IndexOperations refreshIndexOps = mongoTemplate.indexOps(refreshTokenModel.class);
+        resolver.resolveIndexFor(refreshTokenModel.class).forEach(refreshIndexOps::ensureIndex);
+        IndexOperations revokedIndexOps = mongoTemplate.indexOps(revokedTokenModel.class);
+        resolver.resolveIndexFor(revokedTokenModel.class).forEach(revokedIndexOps::ensureIndex);
+    }
+
+    // the outbox recovery pass looks for rows by leaseUntil, dead letters are looked up by trackingId
+    public static void ensureMailIndexes(MongoTemplate mongoTemplate) {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        IndexOperations indexOps = mongoTemplate.indexOps(outboxMailModel.class);
+        resolver.resolveIndexFor(outboxMailModel.class).forEach(indexOps::ensureIndex);
+        IndexOperations deadLetterIndexOps = mongoTemplate.indexOps(mailDeadLetterModel.class);
+        resolver.resolveIndexFor(mailDeadLetterModel.class).forEach(deadLetterIndexOps::ensureIndex);
+    }
+
+    public static void ensureJournalIndexes(MongoTemplate mongoTemplate) {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        IndexOperations indexOps = mongoTemplate.indexOps(journalEntryModel.class);
+        resolver.resolveIndexFor(journalEntryModel.class).forEach(indexOps::ensureIndex);
+        IndexOperations changeIndexOps = mongoTemplate.indexOps(journalChangeModel.class);
+        resolver.resolveIndexFor(journalChangeModel.class).forEach(changeIndexOps::ensureIndex);
+        IndexOperations cleanupIndexOps = mongoTemplate.indexOps(journalCleanupModel.class);
+        resolver.resolveIndexFor(journalCleanupModel.class).forEach(cleanupIndexOps::ensureIndex);
+
+        // full text search over one owner's entries, title counts three times as much as content.
+        // ownerId comes first so a search only touches that owner's part of the index
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(journalEntryModel.class)).createIndex(
+                Indexes.compoundIndex(Indexes.ascending("ownerId"), Indexes.text("title"), Indexes.text("content")),
+                new IndexOptions().name(TEXT_INDEX).weights(new Document("title", 3).append("content", 1)));
+    }
+}
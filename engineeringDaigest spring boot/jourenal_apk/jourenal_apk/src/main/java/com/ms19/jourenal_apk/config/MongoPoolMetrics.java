@@ -0,0 +1,103 @@
+package com.ms19.jourenal_apk.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// How long requests wait for a pooled Mongo connection, the number to size the pool by.
+// Spring Boot already registers Micrometer's pool gauges (mongodb.driver.pool.size,
+// .checkedout, .waitqueuesize) and the command timer (mongodb.driver.commands); this adds
+// the checkout wait and the checkouts that timed out, and puts all of them in one snapshot
+@Component
+public class MongoPoolMetrics implements ConnectionPoolListener {
+
+    public static final String CHECKOUT_WAIT = "mongodb.driver.pool.checkout.wait";
+    public static final String CHECKOUT_FAILED = "mongodb.driver.pool.checkout.failed";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        Timer.builder(CHECKOUT_WAIT)
+                .description("time spent waiting for a pooled connection")
+                .tag("server", event.getConnectionId().getServerId().getAddress().toString())
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry)
+                .record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        Counter.builder(CHECKOUT_FAILED)
+                .description("connection checkouts that failed, reason TIMEOUT means the pool is too small")
+                .tag("server", event.getServerId().getAddress().toString())
+                .tag("reason", event.getReason().name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("poolSize", sumGauges("mongodb.driver.pool.size"));
+        res.put("checkedOut", sumGauges("mongodb.driver.pool.checkedout"));
+        res.put("waitQueueSize", sumGauges("mongodb.driver.pool.waitqueuesize"));
+
+        Map<String, Object> wait = new LinkedHashMap<>();
+        for (Timer timer : meterRegistry.find(CHECKOUT_WAIT).timers()) {
+            wait.put(timer.getId().getTag("server"), timerStats(timer));
+        }
+        res.put("checkoutWait", wait);
+        res.put("checkoutFailed", meterRegistry.find(CHECKOUT_FAILED).counters().stream()
+                .mapToDouble(Counter::count).sum());
+
+        // command latency per command name, summed over collections and outcomes
+        Map<String, Object> commands = new TreeMap<>();
+        Map<String, long[]> counts = new TreeMap<>();
+        Map<String, double[]> times = new TreeMap<>();
+        for (Timer timer : meterRegistry.find("mongodb.driver.commands").timers()) {
+            String command = timer.getId().getTag("command");
+            counts.computeIfAbsent(command, k -> new long[1])[0] += timer.count();
+            double[] t = times.computeIfAbsent(command, k -> new double[2]);
+            t[0] += timer.totalTime(TimeUnit.MILLISECONDS);
+            t[1] = Math.max(t[1], timer.max(TimeUnit.MILLISECONDS));
+        }
+        counts.forEach((command, count) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", count[0]);
+            stats.put("meanMs", count[0] == 0 ? 0 : times.get(command)[0] / count[0]);
+            stats.put("maxMs", times.get(command)[1]);
+            commands.put(command, stats);
+        });
+        res.put("commands", commands);
+        return res;
+    }
+
+    private double sumGauges(String name) {
+        return meterRegistry.find(name).gauges().stream().mapToDouble(Gauge::value).sum();
+    }
+
+    private Map<String, Object> timerStats(Timer timer) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", timer.count());
+        stats.put("meanMs", timer.mean(TimeUnit.MILLISECONDS));
+        stats.put("maxMs", timer.max(TimeUnit.MILLISECONDS));
+        for (var percentile : timer.takeSnapshot().percentileValues()) {
+            stats.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return stats;
+    }
+}
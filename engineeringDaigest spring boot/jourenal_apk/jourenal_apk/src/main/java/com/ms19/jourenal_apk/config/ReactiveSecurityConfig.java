@@ -0,0 +1,107 @@
+package com.ms19.jourenal_apk.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.web.server.WebFilter;
+
+import com.ms19.jourenal_apk.Security.MetricsScrapeToken;
+import com.ms19.jourenal_apk.Security.TokenRevocationList;
+import com.ms19.jourenal_apk.Services.ReactiveUserDetailServiceImpl;
+import com.ms19.jourenal_apk.filter.JwtFilterMetrics;
+import com.ms19.jourenal_apk.filter.JwtWebFilter;
+import com.ms19.jourenal_apk.utils.JwtUtil;
+
+// SpringSecurity for the reactive profile, same rules; no sessions, every request brings its token
+@Configuration
+@EnableWebFluxSecurity
+@Profile("reactive")
+public class ReactiveSecurityConfig {
+
+    @Autowired
+    private ReactiveUserDetailServiceImpl userDetailsService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private JwtFilterMetrics jwtFilterMetrics;
+
+    @Autowired
+    private MetricsScrapeToken metricsScrapeToken;
+
+    @Value("${journal.security.jwt.stateless:false}")
+    private boolean stateless;
+
+    @Value("${journal.security.jwt.version-check:false}")
+    private boolean versionCheck;
+
+    // /actuator/** as in SpringSecurity: health is open, the rest takes the scrape token, no bcrypt
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public SecurityWebFilterChain actuatorWebFilterChain(ServerHttpSecurity http) {
+        WebFilter scrapeTokenFilter = (exchange, chain) -> {
+            Authentication auth = metricsScrapeToken.authenticate(
+                    exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+            return auth == null ? chain.filter(exchange)
+                    : chain.filter(exchange).contextWrite(ReactiveSecurityContextHolder.withAuthentication(auth));
+        };
+        return http.securityMatcher(ServerWebExchangeMatchers.pathMatchers("/actuator/**"))
+                .authorizeExchange(exchange -> exchange
+                        .pathMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .anyExchange().hasRole(MetricsScrapeToken.ROLE))
+                .addFilterAt(scrapeTokenFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling(ex -> ex.authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .build();
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        return http.authorizeExchange(exchange -> exchange
+                .pathMatchers("/", "/api/v1/").permitAll()
+                .pathMatchers("/api/v1/journal/**", "/api/v1/user/**").authenticated()
+                .pathMatchers("/api/v1/Admin/**").hasRole("ADMIN")
+                .anyExchange().permitAll())
+                .addFilterAt(new JwtWebFilter(jwtUtil, userDetailsService, tokenRevocationList, jwtFilterMetrics,
+                        stateless, versionCheck), SecurityWebFiltersOrder.AUTHENTICATION)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .httpBasic(Customizer.withDefaults())
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .build();
+    }
+
+    // used by http basic and the login endpoint, checks the password on the bounded elastic scheduler,
+    // which waits for BoundedBCryptPasswordEncoder; rehashes the password when the bcrypt cost changed
+    @Bean
+    public ReactiveAuthenticationManager reactiveAuthenticationManager(PasswordEncoder passwordEncoder) {
+        UserDetailsRepositoryReactiveAuthenticationManager manager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService);
+        manager.setPasswordEncoder(passwordEncoder);
+        manager.setUserDetailsPasswordService(userDetailsService);
+        return manager;
+    }
+}
@@ -0,0 +1,58 @@
+package com.ms19.jourenal_apk.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.ReadPreference;
+import com.ms19.jourenal_apk.Repository.JournaleEntryRepo;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+// Template and journal repository for read-only endpoints, with their own read preference
+// (journal.mongo.read-preference, e.g. secondaryPreferred or nearest). Reads through them can
+// trail the primary by the replication lag, so nothing that reads its own write uses them, and
+// nothing answered with an ETag or a sync token: those come from the primary and a body read
+// here could be older than them, cached by the client under the newer tag.
+// With the default "primary" they are the regular beans.
+@Component
+@Slf4j
+public class ReadOnlyMongo {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JournaleEntryRepo journaleEntryRepo;
+
+    @Value("${journal.mongo.read-preference:primary}")
+    private String readPreference;
+
+    private MongoTemplate template;
+    private JournaleEntryRepo journalEntryRepo;
+
+    @PostConstruct
+    public void init() {
+        ReadPreference preference = ReadPreference.valueOf(readPreference);
+        if (preference.equals(ReadPreference.primary())) {
+            template = mongoTemplate;
+            journalEntryRepo = journaleEntryRepo;
+            return;
+        }
+        template = new MongoTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter());
+        template.setReadPreference(preference);
+        journalEntryRepo = new MongoRepositoryFactory(template).getRepository(JournaleEntryRepo.class);
+        log.info("read-only endpoints read with {}", preference.getName());
+    }
+
+    public MongoTemplate template() {
+        return template;
+    }
+
+    public JournaleEntryRepo journalEntryRepo() {
+        return journalEntryRepo;
+    }
+}
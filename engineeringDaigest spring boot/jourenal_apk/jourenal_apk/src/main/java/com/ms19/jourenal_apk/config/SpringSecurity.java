@@ -5,6 +5,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -12,22 +15,58 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import com.ms19.jourenal_apk.Security.MetricsScrapeToken;
 import com.ms19.jourenal_apk.Services.UserDetailServiceImpl;
 import com.ms19.jourenal_apk.filter.JwtFilter;
 
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
+
+// servlet stack only, the reactive profile uses ReactiveSecurityConfig
 @Configuration
 @EnableWebSecurity
+@Profile("!reactive")
 public class SpringSecurity {
 
     @Autowired
     private UserDetailServiceImpl userDetailsService;
     @Autowired
     private JwtFilter jwtFilter;
+    @Autowired
+    private MetricsScrapeToken metricsScrapeToken;
+
+    // /actuator/** has a chain of its own: health is open, the rest takes the scrape token,
+    // no http basic and no JWT, so the scrape never waits for the bcrypt pool
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        Filter scrapeTokenFilter = (request, response, chain) -> {
+            Authentication auth = metricsScrapeToken.authenticate(
+                    ((HttpServletRequest) request).getHeader("Authorization"));
+            if (auth != null) {
+                SecurityContextHolder.getContext().setAuthentication(auth);
+            }
+            chain.doFilter(request, response);
+        };
+        return http.securityMatcher("/actuator/**")
+                .authorizeHttpRequests(request -> request
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        .anyRequest().hasRole(MetricsScrapeToken.ROLE))
+                .addFilterBefore(scrapeTokenFilter, AnonymousAuthenticationFilter.class)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .exceptionHandling(ex -> ex.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .csrf(AbstractHttpConfigurer::disable)
+                .build();
+    }
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -43,17 +82,14 @@ public class SpringSecurity {
                 .build();
     }
 
+    // the PasswordEncoder is Security.BoundedBCryptPasswordEncoder; userDetailsService also
+    // stores rehashed passwords when the bcrypt cost changed
     @Autowired
     public void configureGlobal(AuthenticationManagerBuilder auth, @Lazy PasswordEncoder passwordEncoder)
             throws Exception {
         auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder);
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
      @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration auth) throws Exception {
         return auth.getAuthenticationManager();
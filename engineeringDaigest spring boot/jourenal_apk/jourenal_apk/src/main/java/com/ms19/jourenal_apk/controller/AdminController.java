@@ -3,24 +3,59 @@ package com.ms19.jourenal_apk.controller;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.ms19.jourenal_apk.Response.Response;
+import com.ms19.jourenal_apk.Security.BoundedBCryptPasswordEncoder;
+import com.ms19.jourenal_apk.Security.LoginThrottle;
+import com.ms19.jourenal_apk.Security.TokenRevocationList;
+import com.ms19.jourenal_apk.Services.UserDetailServiceImpl;
+import com.ms19.jourenal_apk.Services.UserExportService;
 import com.ms19.jourenal_apk.Services.UserServices;
 import com.ms19.jourenal_apk.entity.userModel;
+import com.ms19.jourenal_apk.config.MongoPoolMetrics;
+import com.ms19.jourenal_apk.scheduler.JournalReaper;
 
 @RestController
 @RequestMapping("/api/v1/Admin")
+@Profile("!reactive")
 public class AdminController {
 
     @Autowired
     private UserServices userServices;
 
+    @Autowired
+    private UserDetailServiceImpl userDetailService;
+
+    @Autowired
+    private UserExportService userExportService;
+
+    @Autowired
+    private JournalReaper journalReaper;
+
+    @Autowired
+    private MongoPoolMetrics mongoPoolMetrics;
+
+    @Autowired
+    private BoundedBCryptPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
     @GetMapping("/get-all-user")
     public Response getAllUser() {
         // Authentication authentication =
@@ -36,6 +71,49 @@ public class AdminController {
 
     }
 
+    // streaming variant of get-all-user, one user per line, e.g. ?fields=id,userName
+    @GetMapping("/get-all-user/export")
+    public ResponseEntity<StreamingResponseBody> exportAllUser(@RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return userExportService.exportNdjson(fields, acceptEncoding);
+    }
+
+    @GetMapping("/user-cache-stats")
+    public Response getUserCacheStats() {
+        return new Response(200, true, "user cache stats fetched succesfully", null, userDetailService.getCacheStats());
+    }
+
+    // progress of the background cleanup of deleted users' journals
+    @GetMapping("/journal-reaper-stats")
+    public Response getJournalReaperStats() {
+        return new Response(200, true, "journal reaper stats fetched succesfully", null, journalReaper.getStats());
+    }
+
+    // pool size, checked out connections, checkout wait and command latency
+    @GetMapping("/mongo-pool-stats")
+    public Response getMongoPoolStats() {
+        return new Response(200, true, "mongo pool stats fetched succesfully", null, mongoPoolMetrics.getStats());
+    }
+
+    // bcrypt cost, hashing pool usage and shed requests
+    @GetMapping("/password-hashing-stats")
+    public Response getPasswordHashingStats() {
+        return new Response(200, true, "password hashing stats fetched succesfully", null, passwordEncoder.getStats());
+    }
+
+    // logins turned away by the rate limits and the unknown user cache
+    @GetMapping("/login-throttle-stats")
+    public Response getLoginThrottleStats() {
+        return new Response(200, true, "login throttle stats fetched succesfully", null, loginThrottle.getStats());
+    }
+
+    // size and hit counts of the in-memory revoked token filter
+    @GetMapping("/token-revocation-stats")
+    public Response getTokenRevocationStats() {
+        return new Response(200, true, "token revocation stats fetched succesfully", null,
+                tokenRevocationList.getStats());
+    }
+
     @PostMapping("/creat-admin")
     public Response createAdmin(@RequestBody userModel user) {
 
@@ -1,8 +1,12 @@
 package com.ms19.jourenal_apk.controller;
 
 import java.util.List;
+
+import jakarta.servlet.http.HttpServletRequest;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -14,18 +18,32 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.ms19.jourenal_apk.Services.JournalBulkService;
 import com.ms19.jourenal_apk.Services.JournalEntryServices;
+import com.ms19.jourenal_apk.Services.JournalVersionService;
 import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.entity.journalVersionModel;
 import com.ms19.jourenal_apk.Response.*;
 
+// Spring MVC variant, ReactiveJournalEntryController serves the same paths under the reactive profile
 @RestController
 @RequestMapping("api/v1/journal/")
+@Profile("!reactive")
 public class JourenalEntryController {
 
     @Autowired
     private JournalEntryServices journalEntryServices;
 
+    @Autowired
+    private JournalBulkService journalBulkService;
+
+    @Autowired
+    private JournalVersionService journalVersionService;
+
     @GetMapping("/greet")
     public String greet() {
         return "hello from manish";
@@ -49,13 +67,39 @@ public class JourenalEntryController {
 
     }
 
+    // offline sync: body is a JSON array of entries, the result has one item per entry
+    @PostMapping("/bulk")
+    public Response bulkCreateEntries(HttpServletRequest request) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String userName = authentication.getName();
+
+            BulkResult result = journalBulkService.importEntries(userName, request.getInputStream());
+            if (result == null) {
+                return new Response(404, false, "user not found");
+            }
+            if (result.getError() != null) {
+                // part of it is written, the items say which
+                return new Response(400, false, "bulk request stopped early", result.getError(), result);
+            }
+            return new Response(200, true, "journal entries imported", null, result);
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            return new Response(400, false, "invalid bulk request", e.getMessage());
+        } catch (Exception e) {
+            return new Response(500, false, "could not import entries", e.getMessage());
+        }
+    }
+
     @GetMapping("/getJournalEntriesByUserName")
-    public Response getJournalEntriesByUserName() {
+    public Response getJournalEntriesByUserName(WebRequest webRequest) {
 
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String userName = authentication.getName();
 
+            if (isNotModified(userName, webRequest)) {
+                return null; // 304, the entries are not loaded at all
+            }
             List<journalEntryModel> Entrys = journalEntryServices.getJournalEntriesByUserName(userName);
             return new Response(200, true, "journal entry fechted succefully", null, Entrys);
 
@@ -65,12 +109,81 @@ public class JourenalEntryController {
         }
     }
 
+    @GetMapping("/entries")
+    public Response getEntriesPage(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String userName = authentication.getName();
+
+            CursorPage<journalEntryModel> page = journalEntryServices.getJournalEntriesPage(userName, cursor, limit);
+            if (page == null) {
+                return new Response(404, false, "user not found");
+            }
+            return new Response(200, true, "journal entry fechted succefully", null, page);
+
+        } catch (IllegalArgumentException e) {
+            return new Response(400, false, "invalid cursor", e.getMessage());
+        } catch (Exception e) {
+            return new Response(400, false, "couold not fetch entries", e.getMessage());
+        }
+    }
+
+    // delta sync: changes after the given token, without a token only returns a starting token
+    @GetMapping("/sync")
+    public Response syncEntries(@RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String userName = authentication.getName();
+
+            SyncPage page = journalEntryServices.getChanges(userName, since, limit);
+            if (page == null) {
+                return new Response(404, false, "user not found");
+            }
+            return new Response(200, true, "journal changes fechted succefully", null, page);
+
+        } catch (IllegalArgumentException e) {
+            return new Response(400, false, "invalid sync token", e.getMessage());
+        } catch (IllegalStateException e) {
+            return new Response(410, false, "sync token expired", e.getMessage());
+        } catch (Exception e) {
+            return new Response(400, false, "could not fetch changes", e.getMessage());
+        }
+    }
+
+    @GetMapping("/search")
+    public Response searchEntries(@RequestParam String q,
+            @RequestParam(defaultValue = "false") boolean prefix,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String userName = authentication.getName();
+
+            SearchPage<journalEntryModel> result = journalEntryServices.searchEntries(userName, q, prefix, page, limit);
+            if (result == null) {
+                return new Response(404, false, "user not found");
+            }
+            return new Response(200, true, "journal entry fechted succefully", null, result);
+
+        } catch (IllegalArgumentException e) {
+            return new Response(400, false, "invalid search", e.getMessage());
+        } catch (Exception e) {
+            return new Response(400, false, "could not search entries", e.getMessage());
+        }
+    }
+
     @GetMapping("/getOneEntry/{myid}")
-    public Response getEntry(@PathVariable ObjectId myid) {
+    public Response getEntry(@PathVariable ObjectId myid, WebRequest webRequest) {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String userName = authentication.getName();
 
+            if (isNotModified(userName, webRequest)) {
+                return null; // 304
+            }
+
             Object entry = journalEntryServices.getOneEntry(myid, userName).orElse(null);
             if (entry==null) {
                 return new Response(400, false, "entry is nulll",  "entry null he bro");
@@ -113,17 +226,41 @@ public class JourenalEntryController {
         }
     }
 
+    // send the entry's version to update only if nobody changed it since it was read
     @PutMapping("/updateEntry/{username}/{myid}")
-    public Response updateEntry(@PathVariable("myid") ObjectId myid,
+    public ResponseEntity<Response> updateEntry(@PathVariable("myid") ObjectId myid,
             @RequestBody journalEntryModel entryModel) {
         try {
-            Object Entry = journalEntryServices.updateOneEntry(myid, entryModel);
-            return new Response(200, true, "entry update succefully", null, Entry);
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String userName = authentication.getName();
 
+            Object Entry = journalEntryServices.updateOneEntry(myid, entryModel, userName);
+            if (Entry == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                        new Response(404, false, "Entry not found", null, null));
+            }
+            return ResponseEntity.ok(new Response(200, true, "entry update succefully", null, Entry));
+
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(
+                    new Response(409, false, "entry was modified, reload it and retry", e.getMessage(), null));
         } catch (Exception e) {
-            return new Response(500, false, "could not update the Entry", e.getMessage(), null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                    new Response(500, false, "could not update the Entry", e.getMessage(), null));
+
+        }
+    }
 
+    // handles If-None-Match / If-Modified-Since against the user's journal version, which
+    // changes on any entry write; also sets ETag and Last-Modified on the response
+    private boolean isNotModified(String userName, WebRequest webRequest) {
+        ObjectId ownerId = journalEntryServices.resolveOwnerId(userName);
+        if (ownerId == null) {
+            return false;
         }
+        journalVersionModel version = journalVersionService.get(ownerId);
+        return webRequest.checkNotModified(journalVersionService.etag(version),
+                journalVersionService.lastModified(version));
     }
 
 }
@@ -0,0 +1,198 @@
+package com.ms19.jourenal_apk.controller;
+
+import java.time.Instant;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.ms19.jourenal_apk.Response.Response;
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.Services.JournalVersionService;
+import com.ms19.jourenal_apk.Services.ReactiveJournalEntryServices;
+import com.ms19.jourenal_apk.Services.ReactiveUserServices;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.entity.journalVersionModel;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// JourenalEntryController for the reactive profile: same paths, same Response bodies
+@RestController
+@RequestMapping("api/v1/journal/")
+@Profile("reactive")
+public class ReactiveJournalEntryController {
+
+    @Autowired
+    private ReactiveJournalEntryServices journalEntryServices;
+
+    @Autowired
+    private ReactiveUserServices userServices;
+
+    @Autowired
+    private JournalVersionService journalVersionService;
+
+    @GetMapping("/greet")
+    public String greet() {
+        return "hello from manish";
+    }
+
+    @PostMapping("/createEntry")
+    public Mono<Response> createEntry(@AuthenticationPrincipal CustomUserDetails principal,
+            @RequestBody journalEntryModel myEntry) {
+        return userServices.resolveOwnerId(principal)
+                .flatMap(ownerId -> journalEntryServices.saveEntry(myEntry, ownerId, principal.getUsername()))
+                .map(entry -> new Response(200, true, "journal entry created succefully", null, entry))
+                .defaultIfEmpty(new Response(404, false, "jounal entry is null"))
+                .onErrorResume(e -> Mono.just(new Response(440, false, "could not create entry", e.getMessage())));
+    }
+
+    @PostMapping("/bulk")
+    public Mono<Response> bulkCreateEntries(@AuthenticationPrincipal CustomUserDetails principal,
+            ServerWebExchange exchange) {
+        return journalEntryServices
+                .importEntries(principal.getUsername(),
+                        DataBufferUtils.subscriberInputStream(exchange.getRequest().getBody(), 16))
+                .map(result -> result.getError() != null
+                        // part of it is written, the items say which
+                        ? new Response(400, false, "bulk request stopped early", result.getError(), result)
+                        : new Response(200, true, "journal entries imported", null, result))
+                .defaultIfEmpty(new Response(404, false, "user not found"))
+                .onErrorResume(e -> Mono.just(e instanceof IllegalArgumentException || e instanceof JsonProcessingException
+                        ? new Response(400, false, "invalid bulk request", e.getMessage())
+                        : new Response(500, false, "could not import entries", e.getMessage())));
+    }
+
+    @GetMapping("/getJournalEntriesByUserName")
+    public Mono<Response> getJournalEntriesByUserName(@AuthenticationPrincipal CustomUserDetails principal,
+            ServerWebExchange exchange) {
+        return userServices.resolveOwnerId(principal)
+                .flatMap(ownerId -> notModified(ownerId, exchange)
+                        // 304, the entries are not loaded at all
+                        .flatMap(notModified -> notModified ? Mono.<Response>empty()
+                                : journalEntryServices.getJournalEntries(ownerId).collectList()
+                                        .map(entries -> new Response(200, true, "journal entry fechted succefully",
+                                                null, entries))))
+                .onErrorResume(e -> Mono.just(new Response(400, false, "couold not fetch entries", e.getMessage())));
+    }
+
+    // the same list as newline delimited JSON, written to the client while it is read from Mongo
+    @GetMapping(value = "/getJournalEntriesByUserName/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<journalEntryModel> streamJournalEntries(@AuthenticationPrincipal CustomUserDetails principal) {
+        return userServices.resolveOwnerId(principal).flatMapMany(journalEntryServices::getJournalEntries);
+    }
+
+    @GetMapping("/entries")
+    public Mono<Response> getEntriesPage(@AuthenticationPrincipal CustomUserDetails principal,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return userServices.resolveOwnerId(principal)
+                .flatMap(ownerId -> journalEntryServices.getJournalEntriesPage(ownerId, cursor, limit))
+                .map(page -> new Response(200, true, "journal entry fechted succefully", null, page))
+                .defaultIfEmpty(new Response(404, false, "user not found"))
+                .onErrorResume(e -> Mono.just(e instanceof IllegalArgumentException
+                        ? new Response(400, false, "invalid cursor", e.getMessage())
+                        : new Response(400, false, "couold not fetch entries", e.getMessage())));
+    }
+
+    @GetMapping("/sync")
+    public Mono<Response> syncEntries(@AuthenticationPrincipal CustomUserDetails principal,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer limit) {
+        return userServices.resolveOwnerId(principal)
+                .flatMap(ownerId -> journalEntryServices.getChanges(ownerId, since, limit))
+                .map(page -> new Response(200, true, "journal changes fechted succefully", null, page))
+                .defaultIfEmpty(new Response(404, false, "user not found"))
+                .onErrorResume(e -> Mono.just(e instanceof IllegalArgumentException
+                        ? new Response(400, false, "invalid sync token", e.getMessage())
+                        : e instanceof IllegalStateException
+                                ? new Response(410, false, "sync token expired", e.getMessage())
+                                : new Response(400, false, "could not fetch changes", e.getMessage())));
+    }
+
+    @GetMapping("/search")
+    public Mono<Response> searchEntries(@AuthenticationPrincipal CustomUserDetails principal,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "false") boolean prefix,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer limit) {
+        return userServices.resolveOwnerId(principal)
+                .flatMap(ownerId -> journalEntryServices.searchEntries(ownerId, q, prefix, page, limit))
+                .map(result -> new Response(200, true, "journal entry fechted succefully", null, result))
+                .defaultIfEmpty(new Response(404, false, "user not found"))
+                .onErrorResume(e -> Mono.just(e instanceof IllegalArgumentException
+                        ? new Response(400, false, "invalid search", e.getMessage())
+                        : new Response(400, false, "could not search entries", e.getMessage())));
+    }
+
+    @GetMapping("/getOneEntry/{myid}")
+    public Mono<Response> getEntry(@AuthenticationPrincipal CustomUserDetails principal, @PathVariable ObjectId myid,
+            ServerWebExchange exchange) {
+        return userServices.resolveOwnerId(principal)
+                .flatMap(ownerId -> notModified(ownerId, exchange)
+                        .flatMap(notModified -> notModified ? Mono.<Response>empty()
+                                : journalEntryServices.getOneEntry(myid, ownerId)
+                                        .map(entry -> new Response(200, true, "journal entry fechted succefully",
+                                                null, entry))
+                                        .defaultIfEmpty(new Response(400, false, "entry is nulll", "entry null he bro"))))
+                .onErrorResume(e -> Mono.just(new Response(400, false, "could not fetch entry", e.getMessage())));
+    }
+
+    @DeleteMapping("/deleteEntry/{myid}")
+    public Mono<ResponseEntity<Response>> deleteOnEntry(@AuthenticationPrincipal CustomUserDetails principal,
+            @PathVariable("myid") ObjectId myId) {
+        return userServices.resolveOwnerId(principal)
+                .flatMap(ownerId -> journalEntryServices.deleteEntry(myId, ownerId))
+                .map(deleted -> ResponseEntity.ok(new Response(200, true, "Entry deleted successfully", null, deleted)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                        new Response(404, false, "Entry not found", null, null)))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                        new Response(500, false, "Could not delete the Entry", e.getMessage(), null))));
+    }
+
+    @PutMapping("/updateEntry/{username}/{myid}")
+    public Mono<ResponseEntity<Response>> updateEntry(@AuthenticationPrincipal CustomUserDetails principal,
+            @PathVariable("myid") ObjectId myid, @RequestBody journalEntryModel entryModel) {
+        return userServices.resolveOwnerId(principal)
+                .flatMap(ownerId -> journalEntryServices.updateOneEntry(myid, entryModel, ownerId))
+                .map(updated -> ResponseEntity.ok(new Response(200, true, "entry update succefully", null, updated)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).body(
+                        new Response(404, false, "Entry not found", null, null)))
+                .onErrorResume(OptimisticLockingFailureException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(new Response(409, false,
+                                "entry was modified, reload it and retry", e.getMessage(), null))))
+                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
+                        new Response(500, false, "could not update the Entry", e.getMessage(), null))));
+    }
+
+    // same ETag / Last-Modified handling as the servlet controller
+    private Mono<Boolean> notModified(ObjectId ownerId, ServerWebExchange exchange) {
+        return journalEntryServices.getVersion(ownerId).map(version -> checkNotModified(version, exchange));
+    }
+
+    private boolean checkNotModified(journalVersionModel version, ServerWebExchange exchange) {
+        String etag = journalVersionService.etag(version);
+        long lastModified = journalVersionService.lastModified(version);
+        if (lastModified < 0) {
+            return exchange.checkNotModified(etag);
+        }
+        return exchange.checkNotModified(etag, Instant.ofEpochMilli(lastModified));
+    }
+}
@@ -0,0 +1,136 @@
+package com.ms19.jourenal_apk.controller;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.ms19.jourenal_apk.Response.Response;
+import com.ms19.jourenal_apk.Response.TokenPair;
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.Security.LoginThrottle;
+import com.ms19.jourenal_apk.Services.ReactiveUserDetailServiceImpl;
+import com.ms19.jourenal_apk.Services.RefreshTokenService;
+import com.ms19.jourenal_apk.Services.ReactiveUserServices;
+import com.ms19.jourenal_apk.entity.userModel;
+import com.ms19.jourenal_apk.utils.JwtUtil;
+import com.ms19.jourenal_apk.utils.VerifiedToken;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// sign up, login and delete for the reactive profile, enough to use the journal API;
+// the other user and admin endpoints are only served by the servlet stack
+@RestController
+@RequestMapping("api/v1")
+@Slf4j
+@Profile("reactive")
+public class ReactiveUserController {
+
+    @Autowired
+    private ReactiveUserServices userServices;
+
+    @Autowired
+    private ReactiveAuthenticationManager authenticationManager;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ReactiveUserDetailServiceImpl userDetailsService;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @PostMapping("/saveUser")
+    public Mono<Response> CreateUser(@RequestBody userModel user) {
+        return userServices.saveNewUser(user)
+                .map(saved -> new Response(200, true, "user created successfully", null))
+                .onErrorResume(RejectedExecutionException.class,
+                        e -> Mono.just(new Response(503, false, "server is busy, try again later", e.getMessage())))
+                .onErrorResume(e -> {
+                    log.error("could not create user ");
+                    return Mono.just(new Response(400, false, "could not create the user", e.getMessage()));
+                });
+    }
+
+    // same checks before the password hash as UserController.login
+    @PostMapping("/login")
+    public Mono<Response> login(@RequestBody userModel user, ServerWebExchange exchange) {
+        InetSocketAddress remote = exchange.getRequest().getRemoteAddress();
+        if (!loginThrottle.tryAcquireIp(remote == null ? null : remote.getHostString())) {
+            return Mono.just(new Response(429, false, "too many login attempts, try again later", null, null));
+        }
+        if (loginThrottle.isUnknownUser(user.getUserName())) {
+            return Mono.just(new Response(401, false, "invalid username or password", null, null));
+        }
+        if (!loginThrottle.tryAcquireUser(user.getUserName())) {
+            return Mono.just(new Response(429, false, "too many login attempts, try again later", null, null));
+        }
+        return userDetailsService.findByUsername(user.getUserName())
+                .switchIfEmpty(Mono.defer(() -> {
+                    loginThrottle.markUnknownUser(user.getUserName());
+                    return Mono.error(new BadCredentialsException("unknown user"));
+                }))
+                .flatMap(found -> authenticationManager
+                        .authenticate(new UsernamePasswordAuthenticationToken(user.getUserName(), user.getPassword())))
+                // the refresh token is written to Mongo by the blocking service
+                .flatMap(auth -> Mono
+                        .fromCallable(() -> refreshTokenService.issue((CustomUserDetails) auth.getPrincipal()))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .map(tokens -> new Response(200, true, "user login succefully", null, tokens))
+                .onErrorResume(RejectedExecutionException.class,
+                        e -> Mono.just(new Response(503, false, "server is busy, try again later", e.getMessage())))
+                .onErrorResume(e -> {
+                    log.error("Exception occurred while createAuthenticationToken ", e);
+                    return Mono.just(new Response(401, false, "invalid username or password", null, null));
+                });
+    }
+
+    @PostMapping("/token/refresh")
+    public Mono<Response> refreshToken(@RequestBody TokenPair body) {
+        return Mono.fromCallable(() -> refreshTokenService.refresh(body.getRefreshToken()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(tokens -> new Response(200, true, "token refreshed succefully", null, tokens))
+                .onErrorResume(BadCredentialsException.class,
+                        e -> Mono.just(new Response(401, false, "invalid refresh token", e.getMessage(), null)))
+                .onErrorResume(e -> Mono.just(new Response(500, false, "could not refresh the token", e.getMessage(),
+                        null)));
+    }
+
+    @PostMapping("/user/logout")
+    public Mono<Response> logout(@RequestBody(required = false) TokenPair body, ServerWebExchange exchange) {
+        String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        VerifiedToken accessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? jwtUtil.verify(authorization.substring(7))
+                : null;
+        String refreshToken = body == null ? null : body.getRefreshToken();
+        return Mono.fromRunnable(() -> refreshTokenService.logout(accessToken, refreshToken))
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenReturn(new Response(200, true, "user logged out succefully", null, null));
+    }
+
+    @DeleteMapping("/user/delete-user")
+    public Mono<ResponseEntity<Response>> deleteUser(@AuthenticationPrincipal CustomUserDetails principal) {
+        return userServices.deleteUser(principal.getUsername())
+                .map(user -> ResponseEntity.ok(new Response(200, true, "user deleted successfully", null, user)))
+                .defaultIfEmpty(ResponseEntity.ok(new Response(200, true, "user deleted successfully", null, null)));
+    }
+}
@@ -1,68 +1,84 @@
 package com.ms19.jourenal_apk.controller;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 
 import com.ms19.jourenal_apk.Repository.UserMongoTempletRepo;
-import com.ms19.jourenal_apk.Repository.UserRepo;
 import com.ms19.jourenal_apk.Response.Response;
+import com.ms19.jourenal_apk.Response.TokenPair;
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.Security.LoginThrottle;
 import com.ms19.jourenal_apk.Services.EmailService;
+import com.ms19.jourenal_apk.Services.MailOutbox;
+import com.ms19.jourenal_apk.Services.RefreshTokenService;
 import com.ms19.jourenal_apk.Services.UserDetailServiceImpl;
 import com.ms19.jourenal_apk.Services.UserServices;
 import com.ms19.jourenal_apk.Services.WeatherService;
 import com.ms19.jourenal_apk.entity.userModel;
 import com.ms19.jourenal_apk.utils.JwtUtil;
+import com.ms19.jourenal_apk.utils.VerifiedToken;
 import com.ms19.jourenal_apk.weatherApiRes.WeatherApiRes;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 
 @RestController
 @RequestMapping("api/v1")
 @Slf4j
+@Profile("!reactive")
 public class UserController {
 
     @Autowired
     private UserServices userServices;
     @Autowired
-    private UserRepo userRepo;
-    @Autowired
     private WeatherService weatherService;
     @Autowired
     private UserMongoTempletRepo userMongoTempletRepo;
     @Autowired
     private EmailService emailService;
     @Autowired
+    private MailOutbox mailOutbox;
+    @Autowired
     private AuthenticationManager authenticationManager;
     @Autowired
     private JwtUtil jwtUtil;
     @Autowired
     private UserDetailServiceImpl userDetailsService;
+    @Autowired
+    private LoginThrottle loginThrottle;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
 
     @PostMapping("/saveUser")
     public Response CreateUser(@RequestBody userModel user) {
-        System.out
-                .println("user in usercontroller: userName=" + user.getUserName() + ", password=" + user.getPassword());
-
         try {
             userServices.saveNewUser(user);
             return new Response(200, true, "user created successfully", null);
+        } catch (RejectedExecutionException e) {
+            return new Response(503, false, "server is busy, try again later", e.getMessage());
         } catch (Exception e) {
             log.error("could not create user ");
             return new Response(400, false, "could not create the user", e.getMessage());
@@ -87,8 +103,6 @@ public class UserController {
     @PutMapping("/user/updateUser")
     public Response updateUser(@RequestBody userModel user) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        log.info("authentication is " + authentication);
-        ;
         String username = authentication.getName();
         try {
             userModel dbuser = userServices.updateUser(username, user);
@@ -96,6 +110,8 @@ public class UserController {
                 return new Response(404, false, "user not found", null, null);
             }
             return new Response(200, true, "user updated succefully", null, dbuser);
+        } catch (RejectedExecutionException e) {
+            return new Response(503, false, "server is busy, try again later", e.getMessage());
         } catch (Exception e) {
             return new Response(400, false, "could not update the user", e.getMessage());
         }
@@ -105,7 +121,7 @@ public class UserController {
     public ResponseEntity<Response> deleteUser() {
 
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        userModel user = userRepo.deleteByuserName(authentication.getName());
+        userModel user = userServices.deleteUser(authentication.getName());
         return new ResponseEntity<Response>(new Response(200, true, "user deleted successfully", null, user),
                 HttpStatusCode.valueOf(200));
 
@@ -134,31 +150,75 @@ public class UserController {
     @GetMapping("/send-mail/{email}")
     public Response sendMail(@PathVariable String email) {
 
-        emailService.SendMail(email, "for Testing email", "hello this email is being tested by manish");
-        return new Response(200, true, "email send succefully");
+        String trackingId = emailService.SendMail(email, "for Testing email", "hello this email is being tested by manish");
+        if (trackingId == null) {
+            return new Response(503, false, "mail queue is full, try again later");
+        }
+        return new Response(202, true, "email queued succefully", null, trackingId);
 
     }
 
-    // @Scheduled(cron = "0 * * * * *") for every second
-    @Scheduled(cron = "0 0 9 * * SUN") /* every sun 9:00AM */
-    public Response SendMailAuto() {
-        log.info("message is sending to manishkeer530@gmail.com");
-        emailService.SendMail("manishkeer530@gmail.com", "for Testing email",
-                "every minut you will get this message");
-        return new Response(200, true, "email sent successfully");
+    @GetMapping("/mail-status/{trackingId}")
+    public Response mailStatus(@PathVariable String trackingId) {
+        String status = mailOutbox.getStatus(trackingId);
+        if (status == null) {
+            return new Response(404, false, "unknown tracking id");
+        }
+        return new Response(200, true, "mail status fetched succefully", null, status);
     }
 
     @PostMapping("/login")
-    public Response login(@RequestBody userModel user) {
+    public Response login(@RequestBody userModel user, HttpServletRequest request) {
+        // everything before authenticate is a memory or index lookup, the password check is a BCrypt hash
+        if (!loginThrottle.tryAcquireIp(request.getRemoteAddr())) {
+            return new Response(429, false, "too many login attempts, try again later", null, null);
+        }
+        if (loginThrottle.isUnknownUser(user.getUserName())) {
+            return new Response(401, false, "invalid username or password", null, null);
+        }
+        if (!loginThrottle.tryAcquireUser(user.getUserName())) {
+            return new Response(429, false, "too many login attempts, try again later", null, null);
+        }
         try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(user.getUserName());
             authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(user.getUserName(), user.getPassword()));
-            UserDetails userDetails = userDetailsService.loadUserByUsername(user.getUserName());
-            String jwt = jwtUtil.generateToken(userDetails.getUsername());
-            return new Response(200, true, "user login succefully", null, jwt);
+            TokenPair tokens = refreshTokenService.issue((CustomUserDetails) userDetails);
+            return new Response(200, true, "user login succefully", null, tokens);
+        } catch (UsernameNotFoundException e) {
+            loginThrottle.markUnknownUser(user.getUserName());
+            return new Response(401, false, "invalid username or password", null, null);
+        } catch (RejectedExecutionException e) {
+            // too many password checks queued, shed instead of queueing behind them
+            return new Response(503, false, "server is busy, try again later", e.getMessage());
         } catch (Exception e) {
             log.error("Exception occurred while createAuthenticationToken ", e);
             return new Response(401, false, "invalid username or password", null, null);
         }
     }
+
+    // a new access token for a refresh token; the refresh token is used up and replaced
+    @PostMapping("/token/refresh")
+    public Response refreshToken(@RequestBody TokenPair body) {
+        try {
+            TokenPair tokens = refreshTokenService.refresh(body.getRefreshToken());
+            return new Response(200, true, "token refreshed succefully", null, tokens);
+        } catch (BadCredentialsException e) {
+            return new Response(401, false, "invalid refresh token", e.getMessage(), null);
+        } catch (Exception e) {
+            log.error("could not refresh token ", e);
+            return new Response(500, false, "could not refresh the token", e.getMessage(), null);
+        }
+    }
+
+    // revokes the access token of this request, and its refresh token when one is sent
+    @PostMapping("/user/logout")
+    public Response logout(@RequestBody(required = false) TokenPair body,
+            @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        VerifiedToken accessToken = authorization != null && authorization.startsWith("Bearer ")
+                ? jwtUtil.verify(authorization.substring(7))
+                : null;
+        refreshTokenService.logout(accessToken, body == null ? null : body.getRefreshToken());
+        return new Response(200, true, "user logged out succefully", null, null);
+    }
 }
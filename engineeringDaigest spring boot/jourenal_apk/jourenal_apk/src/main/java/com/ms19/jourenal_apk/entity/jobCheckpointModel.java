@@ -0,0 +1,27 @@
+package com.ms19.jourenal_apk.entity;
+
+import java.time.LocalDateTime;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+// progress of a long running job, one document per job name
+@Data
+@Document(collection = "jobCheckpoint")
+public class jobCheckpointModel {
+    @Id
+    private String id;
+    // which run this progress belongs to, e.g. the cron fire time of a digest
+    private String runKey;
+    // everything up to and including this _id is done
+    private ObjectId lastId;
+    private long processed;
+    private boolean completed;
+    private LocalDateTime updatedAt;
+    // jobs run by one instance at a time: the instance working on it and until when
+    private String leaseHolder;
+    private LocalDateTime leaseUntil;
+}
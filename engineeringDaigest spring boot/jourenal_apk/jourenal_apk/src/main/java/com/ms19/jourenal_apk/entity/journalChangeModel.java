@@ -0,0 +1,32 @@
+package com.ms19.jourenal_apk.entity;
+
+import java.time.LocalDateTime;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+// latest change of one journal entry, rewritten on every change so the log never holds
+// more than one document per entry. Deletes stay as tombstones until expireAt
+@Data
+@Document(collection = "journalChange")
+@CompoundIndex(name = "owner_seq_idx", def = "{'ownerId': 1, 'seq': 1}")
+public class journalChangeModel {
+    public static final String UPSERT = "upsert";
+    public static final String DELETE = "delete";
+
+    // the entry id
+    @Id
+    private ObjectId id;
+    private ObjectId ownerId;
+    // the owner's journal version at the time of the change
+    private long seq;
+    private String op;
+    private LocalDateTime changedAt;
+    @Indexed(name = "expire_at_ttl", expireAfterSeconds = 0)
+    private LocalDateTime expireAt;
+}
@@ -0,0 +1,25 @@
+package com.ms19.jourenal_apk.entity;
+
+import java.time.LocalDateTime;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+// journal of a deleted user that still has to be removed, written before the user document is
+// deleted and removed once the journal is gone. The instance working on it keeps a lease on it;
+// once the lease runs out (that instance died) any instance takes it over
+@Data
+@Document(collection = "journalCleanup")
+public class journalCleanupModel {
+    // the deleted user's id, the ownerId of the entries
+    @Id
+    private ObjectId id;
+    private LocalDateTime requestedAt;
+    @Indexed
+    private LocalDateTime leaseUntil;
+    private long deletedEntries;
+}
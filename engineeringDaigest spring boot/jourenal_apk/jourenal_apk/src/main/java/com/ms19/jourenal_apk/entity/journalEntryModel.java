@@ -1,8 +1,18 @@
 package com.ms19.jourenal_apk.entity;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 import lombok.Data;
 
@@ -20,6 +30,15 @@ import lombok.Data;
 
 @Data
 @Document(collection = "journalEntry")
+@CompoundIndexes({
+        // keyset pagination walks one owner's entries newest first by _id
+        @CompoundIndex(name = "owner_id_idx", def = "{'ownerId': 1, '_id': -1}"),
+        // listing one owner's journal by creation date
+        @CompoundIndex(name = "owner_created_idx", def = "{'ownerId': 1, 'createdAt': -1}"),
+        // type-ahead search, an anchored regex on the words is a range on these
+        @CompoundIndex(name = "owner_title_words_idx", def = "{'ownerId': 1, 'titleWords': 1}"),
+        @CompoundIndex(name = "owner_content_words_idx", def = "{'ownerId': 1, 'contentWords': 1}")
+})
 public class journalEntryModel {
     @Id
     private ObjectId id;
@@ -27,6 +46,27 @@ public class journalEntryModel {
     private String title;
     private String content;
 
+    // owner of this entry, the user document no longer keeps a list of its entries
+    private ObjectId ownerId;
+    private String ownerName;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    // incremented on every change of this entry, clients send it back to update
+    @Version
+    private Long version;
+
+    // lowercased words of title and content for the prefix search, see SearchWords; set on
+    // every write of the text and never sent to clients
+    @JsonIgnore
+    private List<String> titleWords;
+    @JsonIgnore
+    private List<String> contentWords;
+
+    // relevance of a full text search hit, only set on search results and never stored
+    @TextScore
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Float score;
+
    
 
     // public String getTitle() {
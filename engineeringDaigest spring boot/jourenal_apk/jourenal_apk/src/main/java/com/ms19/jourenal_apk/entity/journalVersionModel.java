@@ -0,0 +1,21 @@
+package com.ms19.jourenal_apk.entity;
+
+import java.time.LocalDateTime;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+// one small document per user that changes whenever any of the user's entries change,
+// conditional reads compare against it without loading the entries themselves
+@Data
+@Document(collection = "journalVersion")
+public class journalVersionModel {
+    // the owner's user id
+    @Id
+    private ObjectId id;
+    private long version;
+    private LocalDateTime updatedAt;
+}
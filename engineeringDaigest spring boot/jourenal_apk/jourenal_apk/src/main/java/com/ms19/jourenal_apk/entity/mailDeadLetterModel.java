@@ -0,0 +1,27 @@
+package com.ms19.jourenal_apk.entity;
+
+import java.time.LocalDateTime;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+// mail that could not be delivered after every retry, kept so it can be inspected or replayed
+@Data
+@Document(collection = "mailDeadLetter")
+public class mailDeadLetterModel {
+    @Id
+    private ObjectId id;
+    @Indexed
+    private String trackingId;
+    private String to;
+    private String subject;
+    private String body;
+    private boolean html;
+    private int attempts;
+    private String lastError;
+    private LocalDateTime failedAt;
+}
@@ -0,0 +1,27 @@
+package com.ms19.jourenal_apk.entity;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+// mail the outbox accepted and has not sent or dead-lettered yet. The instance holding it in
+// memory keeps a lease on it; once the lease runs out (that instance died) any instance takes it over
+@Data
+@Document(collection = "mailOutbox")
+public class outboxMailModel {
+    // the tracking id handed to the caller
+    @Id
+    private String id;
+    private String to;
+    private String subject;
+    private String body;
+    private boolean html;
+    private int attempts;
+    @Indexed
+    private LocalDateTime leaseUntil;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,34 @@
+package com.ms19.jourenal_apk.entity;
+
+import java.time.LocalDateTime;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+// One refresh token. Only its SHA-256 is stored, the token itself is only ever with the client.
+// Every refresh uses the token up and hands out the next one of the same family; a used token
+// that comes back means it was copied, and the whole family is dropped.
+@Data
+@Document(collection = "refreshToken")
+public class refreshTokenModel {
+    // hex SHA-256 of the token
+    @Id
+    private String id;
+    @Indexed(name = "user_idx")
+    private ObjectId userId;
+    private String userName;
+    // all tokens of one login share the family
+    @Indexed(name = "family_idx")
+    private String family;
+    private boolean used;
+    // the access token issued with this one, revoked with the family
+    private String accessJti;
+    private LocalDateTime accessExpireAt;
+    private LocalDateTime createdAt;
+    @Indexed(name = "expire_at_ttl", expireAfterSeconds = 0)
+    private LocalDateTime expireAt;
+}
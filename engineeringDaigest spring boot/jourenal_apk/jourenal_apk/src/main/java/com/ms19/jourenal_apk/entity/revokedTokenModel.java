@@ -0,0 +1,23 @@
+package com.ms19.jourenal_apk.entity;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+
+// an access token that was revoked before it expired (logout, password change). Kept until
+// the token would have expired anyway, TokenRevocationList mirrors the ids in memory
+@Data
+@Document(collection = "revokedToken")
+public class revokedTokenModel {
+    // the token's jti
+    @Id
+    private String id;
+    @Indexed(name = "revoked_at_idx")
+    private LocalDateTime revokedAt;
+    @Indexed(name = "expire_at_ttl", expireAfterSeconds = 0)
+    private LocalDateTime expireAt;
+}
@@ -1,14 +1,15 @@
 package com.ms19.jourenal_apk.entity;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.bson.types.ObjectId;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.Indexed;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.mongodb.DBRef;
 import com.mongodb.lang.NonNull;
 
 import lombok.Data;
@@ -25,9 +26,15 @@ public class userModel {
     private String password;
     private String email;
 
-    @DBRef
-    // @DBRef(lazy = false)
-    private List<journalEntryModel> journalEntries = new ArrayList<>();
+    // entries now point at their owner (journalEntryModel.ownerId), this only keeps
+    // the old raw refs of not yet migrated users so a save does not wipe them,
+    // JournalOwnerMigration removes the field once it has been backfilled
+    @JsonIgnore
+    @Field("journalEntries")
+    private List<DBRef> legacyJournalEntries;
 
     private List<String> Role;
+
+    // bumped whenever credentials change so older stateless tokens can be rejected
+    private int tokenVersion;
 }
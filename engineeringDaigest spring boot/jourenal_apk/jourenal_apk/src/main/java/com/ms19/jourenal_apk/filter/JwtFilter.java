@@ -5,25 +5,55 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.Security.TokenRevocationList;
+import com.ms19.jourenal_apk.Services.UserDetailServiceImpl;
 import com.ms19.jourenal_apk.utils.JwtUtil;
+import com.ms19.jourenal_apk.utils.VerifiedToken;
+
+import io.micrometer.core.instrument.Timer;
+
 import java.io.IOException;
 
 @Component
+@Profile("!reactive")
 public class JwtFilter extends OncePerRequestFilter {
     @Autowired
-    private UserDetailsService userDetailsService;
+    private UserDetailServiceImpl userDetailsService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private JwtFilterMetrics jwtFilterMetrics;
+
+    // trust the roles signed into the token instead of loading the user
+    @Value("${journal.security.jwt.stateless:false}")
+    private boolean stateless;
+
+    // in stateless mode, reject tokens whose version is older than the user's current one
+    @Value("${journal.security.jwt.version-check:false}")
+    private boolean versionCheck;
+
+    // also registered as a plain servlet filter; the actuator chain takes the scrape token, not a JWT
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getServletPath().startsWith("/actuator/");
+    }
+
     @Override
     protected void doFilterInternal(
     @NonNull    
@@ -34,21 +64,45 @@ public class JwtFilter extends OncePerRequestFilter {
     FilterChain chain)
             throws ServletException, IOException {
         String authorizationHeader = request.getHeader("Authorization");
-        String username = null;
-        String jwt = null;
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            username = jwtUtil.extractUsername(jwt);
-        }
-        if (username != null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(jwt)) {
-                UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(userDetails, null,
-                        userDetails.getAuthorities());
-                auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(auth);
+            Timer.Sample sample = jwtFilterMetrics.start();
+            // signature and expiry are checked here, once per request
+            VerifiedToken token = jwtUtil.verify(authorizationHeader.substring(7));
+            String outcome;
+            if (token == null || token.username() == null) {
+                outcome = JwtFilterMetrics.INVALID;
+            } else if (tokenRevocationList.isRevoked(token.id())) {
+                // continue unauthenticated; a bloom filter lookup unless the filter hits
+                outcome = JwtFilterMetrics.REVOKED;
+            } else {
+                outcome = authenticate(token, request) ? JwtFilterMetrics.AUTHENTICATED : JwtFilterMetrics.REJECTED;
             }
+            jwtFilterMetrics.stop(sample, outcome);
         }
         chain.doFilter(request, response);
     }
+
+    private boolean authenticate(VerifiedToken token, HttpServletRequest request) {
+        if (stateless && token.hasRoles()) {
+            CustomUserDetails userDetails = jwtUtil.toUserDetails(token);
+            if (versionCheck
+                    && userDetails.getTokenVersion() != userDetailsService.currentTokenVersion(userDetails.getUsername())) {
+                // token is revoked, continue unauthenticated
+                return false;
+            }
+            setAuthentication(userDetails, request);
+            return true;
+        }
+        // stateful mode, or a token issued before roles were embedded
+        UserDetails userDetails = userDetailsService.loadUserByUsername(token.username());
+        setAuthentication(userDetails, request);
+        return true;
+    }
+
+    private void setAuthentication(UserDetails userDetails, HttpServletRequest request) {
+        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(userDetails, null,
+                userDetails.getAuthorities());
+        auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(auth);
+    }
 }
@@ -0,0 +1,55 @@
+package com.ms19.jourenal_apk.filter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+// time JwtFilter / JwtWebFilter spend authenticating a request, by outcome. The timers are
+// looked up once, the filter runs on every request
+@Component
+public class JwtFilterMetrics {
+
+    public static final String AUTHENTICATED = "authenticated";
+    public static final String INVALID = "invalid";
+    public static final String REVOKED = "revoked";
+    public static final String REJECTED = "rejected";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer authenticated;
+    private Timer invalid;
+    private Timer revoked;
+    private Timer rejected;
+
+    @PostConstruct
+    public void init() {
+        authenticated = timer(AUTHENTICATED);
+        invalid = timer(INVALID);
+        revoked = timer(REVOKED);
+        rejected = timer(REJECTED);
+    }
+
+    private Timer timer(String outcome) {
+        return Timer.builder("journal.jwt.filter")
+                .description("bearer token verification and principal lookup")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stop(Timer.Sample sample, String outcome) {
+        sample.stop(switch (outcome) {
+            case AUTHENTICATED -> authenticated;
+            case INVALID -> invalid;
+            case REVOKED -> revoked;
+            default -> rejected;
+        });
+    }
+}
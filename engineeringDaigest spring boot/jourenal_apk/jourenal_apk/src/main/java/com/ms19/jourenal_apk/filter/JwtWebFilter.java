@@ -0,0 +1,102 @@
+package com.ms19.jourenal_apk.filter;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+import com.ms19.jourenal_apk.Security.TokenRevocationList;
+import com.ms19.jourenal_apk.Services.ReactiveUserDetailServiceImpl;
+import com.ms19.jourenal_apk.utils.JwtUtil;
+import com.ms19.jourenal_apk.utils.VerifiedToken;
+
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+
+// JwtFilter for the reactive profile. Not a bean on purpose: WebFlux would also put every
+// WebFilter bean in the main chain, ReactiveSecurityConfig adds it to the security chain only
+public class JwtWebFilter implements WebFilter {
+
+    private final JwtUtil jwtUtil;
+    private final ReactiveUserDetailServiceImpl userDetailsService;
+    private final TokenRevocationList tokenRevocationList;
+    private final JwtFilterMetrics jwtFilterMetrics;
+    private final boolean stateless;
+    private final boolean versionCheck;
+
+    public JwtWebFilter(JwtUtil jwtUtil, ReactiveUserDetailServiceImpl userDetailsService,
+            TokenRevocationList tokenRevocationList, JwtFilterMetrics jwtFilterMetrics, boolean stateless,
+            boolean versionCheck) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.tokenRevocationList = tokenRevocationList;
+        this.jwtFilterMetrics = jwtFilterMetrics;
+        this.stateless = stateless;
+        this.versionCheck = versionCheck;
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
+        String authorizationHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
+            return chain.filter(exchange);
+        }
+        Timer.Sample sample = jwtFilterMetrics.start();
+        VerifiedToken token = jwtUtil.verify(authorizationHeader.substring(7));
+        if (token == null || token.username() == null) {
+            jwtFilterMetrics.stop(sample, JwtFilterMetrics.INVALID);
+            return chain.filter(exchange);
+        }
+        if (tokenRevocationList.mightBeRevoked(token.id())) {
+            // bloom filter hit, confirming it may read Mongo
+            return Mono.fromCallable(() -> tokenRevocationList.isRevoked(token.id()))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(revoked -> {
+                        if (revoked) {
+                            jwtFilterMetrics.stop(sample, JwtFilterMetrics.REVOKED);
+                            return chain.filter(exchange);
+                        }
+                        return authenticate(token, exchange, chain, sample);
+                    });
+        }
+        return authenticate(token, exchange, chain, sample);
+    }
+
+    private Mono<Void> authenticate(VerifiedToken token, ServerWebExchange exchange, WebFilterChain chain,
+            Timer.Sample sample) {
+        // resolve the security context first and call the chain exactly once; chain.filter
+        // completes empty, so a switchIfEmpty after it would run the chain a second time
+        return principal(token)
+                .map(userDetails -> ReactiveSecurityContextHolder.withAuthentication(
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities())))
+                // unknown user or revoked token, continue unauthenticated
+                .defaultIfEmpty(Context.empty())
+                .flatMap(context -> {
+                    jwtFilterMetrics.stop(sample,
+                            context.isEmpty() ? JwtFilterMetrics.REJECTED : JwtFilterMetrics.AUTHENTICATED);
+                    return chain.filter(exchange).contextWrite(context);
+                });
+    }
+
+    private Mono<UserDetails> principal(VerifiedToken token) {
+        if (stateless && token.hasRoles()) {
+            CustomUserDetails userDetails = jwtUtil.toUserDetails(token);
+            if (!versionCheck) {
+                return Mono.just(userDetails);
+            }
+            return userDetailsService.currentTokenVersion(userDetails.getUsername())
+                    .filter(current -> current == userDetails.getTokenVersion())
+                    .map(current -> userDetails);
+        }
+        // stateful mode, or a token issued before roles were embedded
+        return userDetailsService.findByUsername(token.username());
+    }
+}
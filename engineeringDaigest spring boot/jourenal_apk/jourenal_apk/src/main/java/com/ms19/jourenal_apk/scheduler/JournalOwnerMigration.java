@@ -0,0 +1,131 @@
+package com.ms19.jourenal_apk.scheduler;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.DBRef;
+import com.ms19.jourenal_apk.Services.JournalChangeService;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.entity.userModel;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Online backfill of journalEntry.ownerId/ownerName/createdAt from the old
+// users.journalEntries DBRef array. Works a batch of users per run while the app
+// keeps serving, every step is idempotent so a crash just redoes the last batch.
+// Migrated entries count as changed: the owner's journal version moves on and they go into
+// the change log, so cached ETags stop matching and delta sync hands them out.
+// Every read and write of the journal goes by ownerId, so until the backfill is done a user is
+// also migrated on first access (ensureMigrated), before the request or a user delete uses it.
+// That does not depend on journal.migration.owner.enabled, which only stops the batches.
+@Component
+@Slf4j
+public class JournalOwnerMigration {
+
+    private static final String LEGACY_FIELD = "journalEntries";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JournalChangeService journalChangeService;
+
+    @Value("${journal.migration.owner.enabled:true}")
+    private boolean enabled;
+
+    @Value("${journal.migration.owner.batch-size:100}")
+    private int batchSize;
+
+    private volatile boolean done = false;
+
+    // users seen without legacy refs, so their requests do not read the user document again
+    private final Cache<ObjectId, Boolean> migratedUsers = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+
+    @Scheduled(initialDelayString = "${journal.migration.owner.initial-delay-ms:10000}",
+            fixedDelayString = "${journal.migration.owner.delay-ms:5000}")
+    public void migrateBatch() {
+        if (!enabled || done) {
+            return;
+        }
+        Query query = new Query(Criteria.where(LEGACY_FIELD).exists(true)).limit(batchSize);
+        query.fields().include("_id", "userName", LEGACY_FIELD);
+
+        List<Document> users = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(userModel.class));
+        if (users.isEmpty()) {
+            done = true;
+            log.info("journal owner migration is complete");
+            return;
+        }
+        for (Document user : users) {
+            migrateUser(user);
+            migratedUsers.put(user.getObjectId("_id"), Boolean.TRUE);
+        }
+        log.info("journal owner migration moved {} users", users.size());
+    }
+
+    // memory only: false once the backfill is done or the user is known to be migrated
+    public boolean mayNeedMigration(ObjectId userId) {
+        return !done && userId != null && migratedUsers.getIfPresent(userId) == null;
+    }
+
+    // migrates this user now when its entries are still only referenced from the user document
+    public void ensureMigrated(ObjectId userId) {
+        if (!mayNeedMigration(userId)) {
+            return;
+        }
+        Query query = new Query(Criteria.where("_id").is(userId).and(LEGACY_FIELD).exists(true));
+        query.fields().include("_id", "userName", LEGACY_FIELD);
+        Document user = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(userModel.class));
+        if (user != null) {
+            migrateUser(user);
+            log.info("journal owner migration moved user {} on first access", userId);
+        }
+        migratedUsers.put(userId, Boolean.TRUE);
+    }
+
+    private void migrateUser(Document user) {
+        ObjectId userId = user.getObjectId("_id");
+        String userName = user.getString("userName");
+
+        List<ObjectId> entryIds = new ArrayList<>();
+        for (Object ref : user.getList(LEGACY_FIELD, Object.class, List.of())) {
+            if (ref instanceof DBRef dbRef && dbRef.getId() instanceof ObjectId id) {
+                entryIds.add(id);
+            }
+        }
+
+        if (!entryIds.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, journalEntryModel.class);
+            bulk.updateMulti(new Query(Criteria.where("_id").in(entryIds)),
+                    new Update().set("ownerId", userId).set("ownerName", userName));
+            // old entries never had a createdAt, the ObjectId timestamp is the insert time
+            for (ObjectId id : entryIds) {
+                bulk.updateOne(new Query(Criteria.where("_id").is(id).and("createdAt").exists(false)),
+                        new Update().set("createdAt", new Date(id.getTimestamp() * 1000L)));
+            }
+            bulk.execute();
+            // bumps the version (ETag, Last-Modified) and writes one change per entry
+            journalChangeService.entriesChanged(userId, entryIds);
+        }
+
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(userId)), new Update().unset(LEGACY_FIELD),
+                userModel.class);
+    }
+}
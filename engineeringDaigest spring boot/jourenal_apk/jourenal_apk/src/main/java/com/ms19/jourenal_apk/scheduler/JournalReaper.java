@@ -0,0 +1,293 @@
+package com.ms19.jourenal_apk.scheduler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ms19.jourenal_apk.config.IoThreads;
+import com.ms19.jourenal_apk.entity.journalChangeModel;
+import com.ms19.jourenal_apk.entity.journalCleanupModel;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.entity.journalVersionModel;
+import com.ms19.jourenal_apk.entity.userModel;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Removes the journal of deleted users in the background. Deleting a user first stores a
+// journalCleanup document for its id, then removes the user document; the entries go in chunks
+// of _ids on the ownerId index, with a pause after every chunk that grows with how long the
+// chunk took, so a slow or busy Mongo gets more room. The work survives a restart: a cleanup is
+// leased while an instance works on it and taken over by any instance once the lease runs out.
+// The reaper sleeps between chunks, so it runs on its own thread and not on the shared
+// scheduler. The orphan sweep covers owners that have entries but no user and no cleanup, e.g.
+// users deleted before this job existed.
+@Component
+@Slf4j
+public class JournalReaper {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private IoThreads ioThreads;
+
+    @Value("${journal.reaper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${journal.reaper.batch-size:500}")
+    private int batchSize;
+
+    // pause after a chunk = chunk time * factor, i.e. the reaper uses at most 1/(1+factor) of the time
+    @Value("${journal.reaper.throttle-factor:1.0}")
+    private double throttleFactor;
+
+    @Value("${journal.reaper.min-pause-ms:20}")
+    private long minPauseMs;
+
+    @Value("${journal.reaper.max-pause-ms:2000}")
+    private long maxPauseMs;
+
+    @Value("${journal.reaper.sweep-batch-size:1000}")
+    private int sweepBatchSize;
+
+    @Value("${journal.reaper.initial-delay-ms:10000}")
+    private long initialDelayMs;
+
+    @Value("${journal.reaper.delay-ms:5000}")
+    private long delayMs;
+
+    // renewed after every chunk, so it only runs out when the instance stops working on it
+    @Value("${journal.reaper.lease-ms:300000}")
+    private long leaseMs;
+
+    // a cleanup whose user still exists this long after it was written belongs to a delete that failed
+    @Value("${journal.reaper.abandon-ms:600000}")
+    private long abandonMs;
+
+    private ScheduledExecutorService reaperThread;
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+
+    private final AtomicLong ownersQueued = new AtomicLong();
+    private final AtomicLong ownersReaped = new AtomicLong();
+    private final AtomicLong entriesDeleted = new AtomicLong();
+    private final AtomicLong sweepRuns = new AtomicLong();
+    private final AtomicLong orphanOwnersFound = new AtomicLong();
+    private volatile ObjectId currentOwner;
+    private volatile long currentOwnerDeleted;
+    private volatile long lastPauseMs;
+    private volatile LocalDateTime lastSweepAt;
+
+    @PostConstruct
+    public void start() {
+        reaperThread = Executors.newSingleThreadScheduledExecutor(ioThreads.threadFactory("journal-reaper-"));
+        reaperThread.scheduleWithFixedDelay(this::drain, initialDelayMs, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        // interrupts the pause between chunks, the lease hands the owner to the next instance
+        reaperThread.shutdownNow();
+    }
+
+    // stores the cleanup of the owner's journal; call before the user document is deleted so a
+    // crash in between leaves a cleanup behind and not a journal nobody removes
+    public void enqueue(ObjectId ownerId) {
+        if (ownerId == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        boolean inserted = mongoTemplate.upsert(new Query(Criteria.where("_id").is(ownerId)),
+                new Update().setOnInsert("requestedAt", now).setOnInsert("leaseUntil", now)
+                        .setOnInsert("deletedEntries", 0L),
+                journalCleanupModel.class).getUpsertedId() != null;
+        if (inserted) {
+            ownersQueued.incrementAndGet();
+        }
+    }
+
+    void drain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            journalCleanupModel cleanup;
+            while (!Thread.currentThread().isInterrupted() && (cleanup = claim()) != null) {
+                reapOrSkip(cleanup);
+            }
+        } catch (InterruptedException e) {
+            // stopping, the lease runs out and the owner is picked up again
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // an exception would cancel the fixed delay schedule
+            log.error("journal reaper run failed", e);
+        }
+    }
+
+    private journalCleanupModel claim() {
+        LocalDateTime now = LocalDateTime.now();
+        return mongoTemplate.findAndModify(
+                new Query(Criteria.where("leaseUntil").lte(now)).with(Sort.by(Sort.Direction.ASC, "leaseUntil")),
+                new Update().set("leaseUntil", now.plus(Duration.ofMillis(leaseMs))),
+                journalCleanupModel.class);
+    }
+
+    private void reapOrSkip(journalCleanupModel cleanup) throws InterruptedException {
+        ObjectId ownerId = cleanup.getId();
+        if (mongoTemplate.exists(new Query(Criteria.where("_id").is(ownerId)), userModel.class)) {
+            if (cleanup.getRequestedAt().isBefore(LocalDateTime.now().minus(Duration.ofMillis(abandonMs)))) {
+                mongoTemplate.remove(new Query(Criteria.where("_id").is(ownerId)), journalCleanupModel.class);
+                log.warn("user {} was not deleted, dropped its journal cleanup", ownerId);
+            }
+            // otherwise the delete is still on its way, looked at again after the lease
+            return;
+        }
+        try {
+            reap(ownerId);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            // retried by whoever takes it after the lease
+            log.error("could not reap journal of {}", ownerId, e);
+        }
+    }
+
+    private void reap(ObjectId ownerId) throws InterruptedException {
+        currentOwner = ownerId;
+        currentOwnerDeleted = 0;
+        Query page = new Query(Criteria.where("ownerId").is(ownerId)).limit(batchSize);
+        page.fields().include("_id");
+
+        while (true) {
+            long start = System.nanoTime();
+            List<ObjectId> ids = mongoTemplate.find(page, Document.class,
+                    mongoTemplate.getCollectionName(journalEntryModel.class))
+                    .stream().map(d -> d.getObjectId("_id")).toList();
+            if (ids.isEmpty()) {
+                break;
+            }
+            long deleted = mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), journalEntryModel.class)
+                    .getDeletedCount();
+            currentOwnerDeleted += deleted;
+            entriesDeleted.addAndGet(deleted);
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(ownerId)),
+                    new Update().inc("deletedEntries", deleted)
+                            .set("leaseUntil", LocalDateTime.now().plus(Duration.ofMillis(leaseMs))),
+                    journalCleanupModel.class);
+            throttle(System.nanoTime() - start);
+        }
+
+        // sync log and journal version of the owner are small, one delete each
+        mongoTemplate.remove(new Query(Criteria.where("ownerId").is(ownerId)), journalChangeModel.class);
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(ownerId)), journalVersionModel.class);
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(ownerId)), journalCleanupModel.class);
+
+        ownersReaped.incrementAndGet();
+        log.info("reaped journal of deleted user {}: {} entries", ownerId, currentOwnerDeleted);
+        currentOwner = null;
+    }
+
+    private void throttle(long chunkNanos) throws InterruptedException {
+        long pause = (long) (TimeUnit.NANOSECONDS.toMillis(chunkNanos) * throttleFactor);
+        pause = Math.max(minPauseMs, Math.min(maxPauseMs, pause));
+        lastPauseMs = pause;
+        Thread.sleep(pause);
+    }
+
+    // owners that have entries but no user document, e.g. users deleted before this job existed.
+    // Walks the ownerId index in batches, an owner that has a cleanup already is left as it is
+    @Scheduled(cron = "${journal.reaper.sweep-cron:0 30 3 * * *}")
+    public void sweepOrphans() {
+        if (!enabled || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long found = 0;
+            ObjectId after = null;
+            String entryCollection = mongoTemplate.getCollectionName(journalEntryModel.class);
+            while (true) {
+                Set<ObjectId> owners = nextOwners(entryCollection, after);
+                if (owners.isEmpty()) {
+                    break;
+                }
+                Query existing = new Query(Criteria.where("_id").in(owners));
+                existing.fields().include("_id");
+                Set<ObjectId> live = mongoTemplate.find(existing, userModel.class).stream()
+                        .map(userModel::getId)
+                        .collect(Collectors.toSet());
+                for (ObjectId owner : owners) {
+                    if (!live.contains(owner)) {
+                        enqueue(owner);
+                        found++;
+                    }
+                }
+                after = owners.stream().max(ObjectId::compareTo).get();
+            }
+            sweepRuns.incrementAndGet();
+            orphanOwnersFound.addAndGet(found);
+            lastSweepAt = LocalDateTime.now();
+            log.info("orphan sweep queued {} owners without a user", found);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    // the next distinct ownerIds after the given one. Skips from owner to owner with one
+    // indexed query each instead of a distinct over the whole collection
+    private Set<ObjectId> nextOwners(String entryCollection, ObjectId after) {
+        Set<ObjectId> owners = new HashSet<>();
+        ObjectId cursor = after;
+        while (owners.size() < sweepBatchSize) {
+            Criteria criteria = cursor == null ? Criteria.where("ownerId").ne(null)
+                    : Criteria.where("ownerId").gt(cursor);
+            Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "ownerId")).limit(1);
+            query.fields().include("ownerId").exclude("_id");
+            Document next = mongoTemplate.findOne(query, Document.class, entryCollection);
+            if (next == null) {
+                break;
+            }
+            cursor = next.getObjectId("ownerId");
+            owners.add(cursor);
+        }
+        return owners;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("pendingOwners", mongoTemplate.count(new Query(), journalCleanupModel.class));
+        res.put("ownersQueued", ownersQueued.get());
+        res.put("ownersReaped", ownersReaped.get());
+        res.put("entriesDeleted", entriesDeleted.get());
+        res.put("currentOwner", currentOwner != null ? currentOwner.toHexString() : null);
+        res.put("currentOwnerDeleted", currentOwnerDeleted);
+        res.put("lastPauseMs", lastPauseMs);
+        res.put("sweepRuns", sweepRuns.get());
+        res.put("orphanOwnersFound", orphanOwnersFound.get());
+        res.put("lastSweepAt", lastSweepAt);
+        res.put("sweeping", sweeping.get());
+        return res;
+    }
+}
@@ -0,0 +1,96 @@
+package com.ms19.jourenal_apk.scheduler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ms19.jourenal_apk.Repository.JobCheckpointRepo;
+import com.ms19.jourenal_apk.entity.jobCheckpointModel;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.utils.SearchWords;
+
+import lombok.extern.slf4j.Slf4j;
+
+// Online backfill of journalEntry.titleWords/contentWords for entries written before the
+// prefix search used them. Walks the collection in _id order, a batch per run, with the last
+// _id in jobCheckpoint so a restart goes on where it stopped. A field is only set while it is
+// still missing, an entry edited meanwhile keeps the words of its new text. Until it is done,
+// older entries are not found by prefix search.
+@Component
+@Slf4j
+public class JournalSearchWordsMigration {
+
+    private static final String JOB_ID = "search-words-backfill";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JobCheckpointRepo jobCheckpointRepo;
+
+    @Value("${journal.migration.search-words.enabled:true}")
+    private boolean enabled;
+
+    @Value("${journal.migration.search-words.batch-size:500}")
+    private int batchSize;
+
+    private volatile boolean done = false;
+
+    @Scheduled(initialDelayString = "${journal.migration.search-words.initial-delay-ms:15000}",
+            fixedDelayString = "${journal.migration.search-words.delay-ms:1000}")
+    public void migrateBatch() {
+        if (!enabled || done) {
+            return;
+        }
+        jobCheckpointModel checkpoint = jobCheckpointRepo.findById(JOB_ID).orElseGet(() -> {
+            jobCheckpointModel fresh = new jobCheckpointModel();
+            fresh.setId(JOB_ID);
+            return fresh;
+        });
+        if (checkpoint.isCompleted()) {
+            done = true;
+            return;
+        }
+
+        Query query = new Query(checkpoint.getLastId() == null ? new Criteria()
+                : Criteria.where("_id").gt(checkpoint.getLastId()))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(batchSize);
+        query.fields().include("_id", "title", "content");
+        List<Document> entries = mongoTemplate.find(query, Document.class,
+                mongoTemplate.getCollectionName(journalEntryModel.class));
+
+        if (!entries.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, journalEntryModel.class);
+            for (Document entry : entries) {
+                Object id = entry.get("_id");
+                bulk.updateOne(new Query(Criteria.where("_id").is(id).and(SearchWords.TITLE_FIELD).exists(false)),
+                        new Update().set(SearchWords.TITLE_FIELD, SearchWords.of(entry.getString("title"))));
+                bulk.updateOne(new Query(Criteria.where("_id").is(id).and(SearchWords.CONTENT_FIELD).exists(false)),
+                        new Update().set(SearchWords.CONTENT_FIELD, SearchWords.of(entry.getString("content"))));
+            }
+            bulk.execute();
+            checkpoint.setLastId(entries.get(entries.size() - 1).getObjectId("_id"));
+            checkpoint.setProcessed(checkpoint.getProcessed() + entries.size());
+        }
+        // entries written from now on carry their words already
+        checkpoint.setCompleted(entries.size() < batchSize);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        jobCheckpointRepo.save(checkpoint);
+        if (checkpoint.isCompleted()) {
+            done = true;
+            log.info("search words backfill is complete, {} entries", checkpoint.getProcessed());
+        }
+    }
+}
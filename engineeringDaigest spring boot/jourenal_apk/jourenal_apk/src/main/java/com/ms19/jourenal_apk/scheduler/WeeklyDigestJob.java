@@ -0,0 +1,309 @@
+package com.ms19.jourenal_apk.scheduler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import com.ms19.jourenal_apk.Repository.JournaleEntryRepo;
+import com.ms19.jourenal_apk.Repository.UserMongoTempletRepo;
+import com.ms19.jourenal_apk.Services.EmailService;
+import com.ms19.jourenal_apk.config.IoThreads;
+import com.ms19.jourenal_apk.entity.jobCheckpointModel;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+import com.ms19.jourenal_apk.entity.userModel;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+// Weekly "what you wrote" mail. Users with an email are streamed from Mongo in _id order
+// and handled in chunks: every chunk builds its summaries in parallel, the mails go to the
+// outbox at a capped rate, then the last _id of the chunk is checkpointed. The outbox stores
+// a mail before it accepts it, so a checkpointed user's digest is never lost; a chunk with a
+// digest the outbox would not take is not checkpointed. A run is keyed by the cron fire time
+// it belongs to and one that dies half way is picked up again after that checkpoint, on the
+// next trigger or at startup. Runs use their own thread, not the shared scheduler thread.
+// Every instance has the trigger, so a run is claimed with a lease on the checkpoint document
+// (like JournalReaper and the mail outbox): only the instance holding it sends, every
+// checkpoint renews it, and an instance that finds it has lost the lease stops. The lease has
+// to outlast one chunk; when the holder dies another instance resumes after the lease.
+@Component
+@Slf4j
+public class WeeklyDigestJob {
+
+    private static final String JOB_ID = "weekly-digest";
+    private static final int MAX_TITLES = 20;
+
+    // how far back to look for the last fire time, widened until the cron matched
+    private static final List<Duration> LOOKBACK = List.of(Duration.ofHours(1), Duration.ofDays(1),
+            Duration.ofDays(8), Duration.ofDays(32), Duration.ofDays(366));
+    // a trigger may fire a little before its time on the wall clock
+    private static final Duration FIRE_TOLERANCE = Duration.ofSeconds(1);
+
+    @Autowired
+    private UserMongoTempletRepo userMongoTempletRepo;
+
+    @Autowired
+    private JournaleEntryRepo journaleEntryRepo;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private JournalOwnerMigration journalOwnerMigration;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private IoThreads ioThreads;
+
+    @Value("${journal.digest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${journal.digest.cron:0 0 9 * * SUN}")
+    private String cron;
+
+    @Value("${journal.digest.threads:4}")
+    private int threads;
+
+    @Value("${journal.digest.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${journal.digest.rate-per-second:10}")
+    private double ratePerSecond;
+
+    @Value("${journal.digest.lease-ms:600000}")
+    private long leaseMs;
+
+    // only keeps a second run of this instance from waiting on the lease
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private CronExpression cronExpression;
+    private ExecutorService runner;
+    private ExecutorService senders;
+
+    // next point in time (nanoTime) a mail may be handed to the outbox
+    private final AtomicLong nextSendSlot = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cronExpression = Scheduled.CRON_DISABLED.equals(cron) ? null : CronExpression.parse(cron);
+        runner = Executors.newSingleThreadExecutor(ioThreads.threadFactory("weekly-digest-run-"));
+    }
+
+    @Scheduled(cron = "${journal.digest.cron:0 0 9 * * SUN}") /* every sun 9:00AM */
+    public void sendWeeklyDigest() {
+        runner.execute(() -> run(false));
+    }
+
+    // finish the last run that was cut short by a restart, without holding up startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        runner.execute(() -> run(true));
+    }
+
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+        if (senders != null) {
+            senders.shutdownNow();
+        }
+    }
+
+    private void run(boolean onlyResume) {
+        if (!enabled || cronExpression == null || !running.compareAndSet(false, true)) {
+            return;
+        }
+        String holder = null;
+        try {
+            jobCheckpointModel checkpoint = claim();
+            if (checkpoint == null) {
+                // another instance is on it
+                return;
+            }
+            holder = checkpoint.getLeaseHolder();
+            String runKey = lastFireTime();
+            if (runKey.equals(checkpoint.getRunKey())) {
+                if (checkpoint.isCompleted()) {
+                    return;
+                }
+                log.info("resuming weekly digest {} after {} users", runKey, checkpoint.getProcessed());
+            } else if (onlyResume) {
+                return;
+            } else {
+                checkpoint.setRunKey(runKey);
+                checkpoint.setLastId(null);
+                checkpoint.setProcessed(0);
+                if (!saveCheckpoint(checkpoint, null, 0, false)) {
+                    return;
+                }
+            }
+            process(checkpoint);
+        } catch (Exception e) {
+            log.error("weekly digest failed, it will resume from the last checkpoint", e);
+        } finally {
+            if (holder != null) {
+                release(holder);
+            }
+            running.set(false);
+        }
+    }
+
+    // takes the lease on the checkpoint when nobody holds it, null when another instance does
+    private jobCheckpointModel claim() {
+        LocalDateTime now = LocalDateTime.now();
+        // the first run ever has no checkpoint yet, create it free to claim
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(JOB_ID)),
+                new Update().setOnInsert("leaseUntil", now), jobCheckpointModel.class);
+        return mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(JOB_ID).orOperator(Criteria.where("leaseUntil").lte(now),
+                        Criteria.where("leaseUntil").exists(false))),
+                new Update().set("leaseHolder", UUID.randomUUID().toString())
+                        .set("leaseUntil", now.plus(Duration.ofMillis(leaseMs))),
+                FindAndModifyOptions.options().returnNew(true), jobCheckpointModel.class);
+    }
+
+    // lets the next trigger, here or elsewhere, look at the run right away
+    private void release(String holder) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(JOB_ID).and("leaseHolder").is(holder)),
+                new Update().set("leaseUntil", LocalDateTime.now()), jobCheckpointModel.class);
+    }
+
+    private void process(jobCheckpointModel checkpoint) {
+        senders = ioThreads.newIoPool("weekly-digest-", threads);
+        LocalDateTime since = LocalDateTime.now().minusDays(7);
+        try (Stream<userModel> users = userMongoTempletRepo.streamUsersWithEmail(checkpoint.getLastId())) {
+            Iterator<userModel> it = users.iterator();
+            List<userModel> chunk = new ArrayList<>(chunkSize);
+            while (it.hasNext()) {
+                chunk.add(it.next());
+                if (chunk.size() == chunkSize || !it.hasNext()) {
+                    sendChunk(chunk, since);
+                    if (!saveCheckpoint(checkpoint, chunk.get(chunk.size() - 1), chunk.size(), false)) {
+                        return;
+                    }
+                    chunk.clear();
+                }
+            }
+        } finally {
+            senders.shutdown();
+        }
+        if (!saveCheckpoint(checkpoint, null, 0, true)) {
+            return;
+        }
+        log.info("weekly digest {} done, {} users processed", checkpoint.getRunKey(), checkpoint.getProcessed());
+    }
+
+    // throws when a digest could not be queued, so the chunk is not checkpointed
+    private void sendChunk(List<userModel> chunk, LocalDateTime since) {
+        CompletableFuture<?>[] tasks = chunk.stream()
+                .map(user -> CompletableFuture.runAsync(() -> sendDigest(user, since), senders))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).join();
+    }
+
+    private void sendDigest(userModel user, LocalDateTime since) {
+        journalOwnerMigration.ensureMigrated(user.getId());
+        List<journalEntryModel> entries = journaleEntryRepo.findTitlesSince(user.getId(), since);
+        if (entries.isEmpty()) {
+            return;
+        }
+        StringBuilder body = new StringBuilder()
+                .append("Hi ").append(user.getUserName()).append(",\n\n")
+                .append("you wrote ").append(entries.size()).append(" journal entries this week:\n");
+        entries.stream().limit(MAX_TITLES).forEach(e -> body.append(" - ").append(e.getTitle()).append('\n'));
+        if (entries.size() > MAX_TITLES) {
+            body.append(" ... and ").append(entries.size() - MAX_TITLES).append(" more\n");
+        }
+
+        // the outbox rejects when full, wait for it to drain instead of dropping the digest
+        for (int attempt = 0; attempt < 30; attempt++) {
+            awaitSendSlot();
+            if (emailService.SendMail(user.getEmail(), "Your weekly journal digest", body.toString()) != null) {
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+        }
+        throw new IllegalStateException("could not queue weekly digest for " + user.getUserName());
+    }
+
+    // simple pacing limiter shared by all sender threads
+    private void awaitSendSlot() {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long now = System.nanoTime();
+        long slot = nextSendSlot.getAndAccumulate(interval, (prev, step) -> Math.max(prev, now) + step);
+        long wait = Math.max(slot, now) - now;
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    // saves the progress and renews the lease, false when another instance has taken the run over
+    private boolean saveCheckpoint(jobCheckpointModel checkpoint, userModel last, int processed, boolean completed) {
+        if (last != null) {
+            checkpoint.setLastId(last.getId());
+        }
+        checkpoint.setProcessed(checkpoint.getProcessed() + processed);
+        checkpoint.setCompleted(completed);
+        LocalDateTime now = LocalDateTime.now();
+        checkpoint.setUpdatedAt(now);
+        checkpoint.setLeaseUntil(now.plus(Duration.ofMillis(leaseMs)));
+        boolean held = mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(JOB_ID).and("leaseHolder").is(checkpoint.getLeaseHolder())),
+                new Update().set("runKey", checkpoint.getRunKey())
+                        .set("lastId", checkpoint.getLastId())
+                        .set("processed", checkpoint.getProcessed())
+                        .set("completed", completed)
+                        .set("updatedAt", now)
+                        .set("leaseUntil", checkpoint.getLeaseUntil()),
+                jobCheckpointModel.class).getMatchedCount() > 0;
+        if (!held) {
+            log.warn("weekly digest {} lost its lease after {} users, another instance goes on",
+                    checkpoint.getRunKey(), checkpoint.getProcessed());
+        }
+        return held;
+    }
+
+    // the fire time the current run belongs to, the last time the cron matched. A run resumed
+    // after a restart keeps its key, also when that is already in the next week
+    private String lastFireTime() {
+        LocalDateTime now = LocalDateTime.now().plus(FIRE_TOLERANCE);
+        for (Duration window : LOOKBACK) {
+            LocalDateTime fire = cronExpression.next(now.minus(window));
+            if (fire == null || fire.isAfter(now)) {
+                continue;
+            }
+            for (LocalDateTime next = cronExpression.next(fire); next != null && !next.isAfter(now);
+                    next = cronExpression.next(next)) {
+                fire = next;
+            }
+            return fire.toString();
+        }
+        // fires less than once a year, key by the day
+        return now.toLocalDate().toString();
+    }
+}
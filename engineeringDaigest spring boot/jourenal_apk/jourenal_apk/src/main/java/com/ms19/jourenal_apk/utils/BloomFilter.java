@@ -0,0 +1,111 @@
+package com.ms19.jourenal_apk.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Fixed size bloom filter over strings. mightContain never misses a key that was put, and
+// says yes for a key that was not put with about the configured probability. Lock free:
+// bits are set with a CAS, readers never wait. Keys cannot be removed, build a new filter
+// to drop them.
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final int numBits;
+    private final int numHashes;
+    private final AtomicInteger inserted = new AtomicInteger();
+
+    private BloomFilter(int numBits, int numHashes) {
+        this.words = new AtomicLongArray((numBits + 63) >>> 6);
+        this.numBits = numBits;
+        this.numHashes = numHashes;
+    }
+
+    // sized so that after expectedInsertions keys a miss is reported as present with probability fpp
+    public static BloomFilter create(int expectedInsertions, double fpp) {
+        int n = Math.max(1, expectedInsertions);
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-n * Math.log(fpp) / (ln2 * ln2));
+        int numBits = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 63, bits));
+        int numHashes = Math.max(1, (int) Math.round((double) numBits / n * ln2));
+        return new BloomFilter(numBits, numHashes);
+    }
+
+    // true when a bit changed, that is the key was certainly not in the filter before; a key
+    // put again, or one whose bits were all set by others, is not counted as an insertion
+    public boolean put(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean changed = false;
+        for (int i = 0; i < numHashes; i++) {
+            changed |= setBit(index(h1 + i * h2));
+        }
+        if (changed) {
+            inserted.incrementAndGet();
+        }
+        return changed;
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < numHashes; i++) {
+            int bit = index(h1 + i * h2);
+            if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // puts that changed the filter, repeated keys are not counted
+    public int insertions() {
+        return inserted.get();
+    }
+
+    public int bitSize() {
+        return numBits;
+    }
+
+    public int hashCount() {
+        return numHashes;
+    }
+
+    // false positive rate for the keys put so far
+    public double expectedFpp() {
+        return Math.pow(1 - Math.exp(-(double) numHashes * inserted.get() / numBits), numHashes);
+    }
+
+    private int index(int combined) {
+        return (combined & Integer.MAX_VALUE) % numBits;
+    }
+
+    // true when this call set the bit
+    private boolean setBit(int bit) {
+        int word = bit >>> 6;
+        long mask = 1L << bit;
+        long current;
+        while (((current = words.get(word)) & mask) == 0) {
+            if (words.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // FNV-1a over the chars, finished with the murmur3 64 bit mixer
+    private static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
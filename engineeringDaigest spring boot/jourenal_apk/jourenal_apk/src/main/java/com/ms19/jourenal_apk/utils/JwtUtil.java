@@ -1,7 +1,14 @@
 package com.ms19.jourenal_apk.utils;
 
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+
+import com.ms19.jourenal_apk.Security.CustomUserDetails;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import javax.crypto.SecretKey;
@@ -9,14 +16,36 @@ import javax.crypto.SecretKey;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+
+    // access tokens are short lived, clients get new ones with their refresh token
+    @Value("${journal.security.jwt.access-ttl-seconds:900}")
+    private long accessTtlSeconds = 900;
+
     private String SECRET_KEY = "aVeryLongSecretKeyThatIsAtLeast256BitsLongAndSecure";
 
+    // key and parser are immutable and thread safe, build them once instead of per call
+    private final SecretKey signingKey = Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+    private final JwtParser jwtParser = Jwts.parser().verifyWith(signingKey).build();
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes());
+        return signingKey;
+    }
+
+    // parses and verifies the token a single time, null when the signature is bad or it is expired
+    public VerifiedToken verify(String token) {
+        try {
+            return VerifiedToken.from(extractAllClaims(token));
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
     public String extractUsername(String token) {
@@ -28,10 +57,8 @@ public class JwtUtil {
         return extractAllClaims(token).getExpiration();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
+    public Claims extractAllClaims(String token) {
+        return jwtParser
                 .parseSignedClaims(token)
                 .getPayload();
     }
@@ -44,17 +71,48 @@ public class JwtUtil {
         Map<String, Object> claims = new HashMap<>();
         claims.put("username", username); // Including username, userId, and userEmail
 
-        return createToken(claims, username); // Create the token with additional claims
+        return createToken(claims, username, null); // Create the token with additional claims
+    }
+
+    // token that carries everything needed to authenticate without loading the user
+    public String generateToken(CustomUserDetails userDetails) {
+        return generateToken(userDetails, UUID.randomUUID().toString());
+    }
+
+    // same, with the jti the token can be revoked by
+    public String generateToken(CustomUserDetails userDetails, String jti) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("username", userDetails.getUsername());
+        claims.put(CLAIM_ROLES, userDetails.getRoles());
+        claims.put(CLAIM_TOKEN_VERSION, userDetails.getTokenVersion());
+        if (userDetails.getId() != null) {
+            claims.put(CLAIM_USER_ID, userDetails.getId().toHexString());
+        }
+        return createToken(claims, userDetails.getUsername(), jti);
+    }
+
+    public long getAccessTtlSeconds() {
+        return accessTtlSeconds;
+    }
+
+    // null when the token was issued before roles were embedded
+    public CustomUserDetails toUserDetails(VerifiedToken token) {
+        if (!token.hasRoles()) {
+            return null;
+        }
+        return new CustomUserDetails(token.userId() != null ? new ObjectId(token.userId()) : null, token.username(),
+                token.roles(), token.tokenVersion() != null ? token.tokenVersion() : 0);
     }
 
-    private String createToken(Map<String, Object> claims, String subject) {
+    private String createToken(Map<String, Object> claims, String subject, String jti) {
         return Jwts.builder()
                 .claims(claims)
                 .subject(subject)
+                .id(jti)
                 .header().empty().add("typ", "JWT")
                 .and()
                 .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24))
+                .expiration(new Date(System.currentTimeMillis() + accessTtlSeconds * 1000))
                 .signWith(getSigningKey())
                 .compact();
     }
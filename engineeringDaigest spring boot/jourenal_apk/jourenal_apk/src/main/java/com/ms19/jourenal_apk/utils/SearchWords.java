@@ -0,0 +1,77 @@
+package com.ms19.jourenal_apk.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+
+// Words of an entry for the type-ahead (prefix) search. They are stored lowercased and
+// distinct in titleWords and contentWords next to the text, so a prefix is an anchored,
+// case-sensitive regex on an indexed field: a range scan of owner_title_words_idx and
+// owner_content_words_idx instead of a regex over every entry of the owner.
+public final class SearchWords {
+
+    public static final String TITLE_FIELD = "titleWords";
+    public static final String CONTENT_FIELD = "contentWords";
+
+    // caps the index keys one entry adds, words after that are not found by prefix
+    static final int MAX_WORDS = 1000;
+    // longer words are stored cut, a longer prefix is cut the same way and still matches
+    static final int MAX_WORD_LENGTH = 32;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SearchWords() {
+    }
+
+    public static List<String> of(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            words.add(word.length() > MAX_WORD_LENGTH ? word.substring(0, MAX_WORD_LENGTH) : word);
+            if (words.size() == MAX_WORDS) {
+                break;
+            }
+        }
+        return new ArrayList<>(words);
+    }
+
+    // before an insert, from the entry's own title and content
+    public static void fill(journalEntryModel entry) {
+        entry.setTitleWords(of(entry.getTitle()));
+        entry.setContentWords(of(entry.getContent()));
+    }
+
+    // one of the owner's entries where every word of q starts a word of the title or the content
+    public static Criteria prefixCriteria(ObjectId ownerId, String q) {
+        List<String> prefixes = of(q);
+        if (prefixes.isEmpty()) {
+            throw new IllegalArgumentException("search text needs a letter or a digit");
+        }
+        Criteria criteria = Criteria.where("ownerId").is(ownerId);
+        if (prefixes.size() == 1) {
+            return criteria.orOperator(startsWord(prefixes.get(0)));
+        }
+        return criteria.andOperator(prefixes.stream()
+                .map(prefix -> new Criteria().orOperator(startsWord(prefix)))
+                .toArray(Criteria[]::new));
+    }
+
+    private static Criteria[] startsWord(String prefix) {
+        // words only hold letters and digits, nothing to escape
+        String regex = "^" + prefix;
+        return new Criteria[] { Criteria.where(TITLE_FIELD).regex(regex), Criteria.where(CONTENT_FIELD).regex(regex) };
+    }
+}
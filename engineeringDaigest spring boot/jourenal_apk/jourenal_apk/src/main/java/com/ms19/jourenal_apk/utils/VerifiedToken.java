@@ -0,0 +1,28 @@
+package com.ms19.jourenal_apk.utils;
+
+import java.util.Date;
+import java.util.List;
+
+import io.jsonwebtoken.Claims;
+
+// result of verifying a JWT once: signature and expiry are already checked,
+// callers read the claims from here instead of parsing the token again
+public record VerifiedToken(String username, String userId, List<String> roles, Integer tokenVersion,
+        Date issuedAt, Date expiration, String id) {
+
+    static VerifiedToken from(Claims claims) {
+        Object roles = claims.get(JwtUtil.CLAIM_ROLES);
+        List<String> roleNames = null;
+        if (roles instanceof List<?> list) {
+            roleNames = list.stream().map(String::valueOf).toList();
+        }
+        return new VerifiedToken(claims.getSubject(), claims.get(JwtUtil.CLAIM_USER_ID, String.class), roleNames,
+                claims.get(JwtUtil.CLAIM_TOKEN_VERSION, Integer.class), claims.getIssuedAt(), claims.getExpiration(),
+                claims.getId());
+    }
+
+    // false for tokens issued before roles were embedded
+    public boolean hasRoles() {
+        return roles != null;
+    }
+}
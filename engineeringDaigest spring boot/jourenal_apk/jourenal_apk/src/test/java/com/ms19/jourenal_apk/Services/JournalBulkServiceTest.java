@@ -0,0 +1,177 @@
+package com.ms19.jourenal_apk.Services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.bson.BsonDocument;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.ms19.jourenal_apk.Response.BulkResult;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+
+// chunk-size is 2 here, so a third entry means the first chunk is already written
+class JournalBulkServiceTest {
+
+    private final ObjectId ownerId = new ObjectId();
+    private MongoTemplate mongoTemplate;
+    private BulkOperations bulk;
+    private JournalBulkService bulkService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(journalEntryModel.class))).thenReturn(bulk);
+        JournalEntryServices journalEntryServices = mock(JournalEntryServices.class);
+        when(journalEntryServices.resolveOwnerId("alice")).thenReturn(ownerId);
+
+        // the transaction itself needs a replica set, here the write just runs on the template
+        JournalChangeService journalChangeService = mock(JournalChangeService.class);
+        when(journalChangeService.write(eq(ownerId), any(), any(), any())).thenAnswer(invocation -> {
+            Function<MongoOperations, List<ObjectId>> write = invocation.getArgument(2);
+            return write.apply(mongoTemplate);
+        });
+
+        bulkService = new JournalBulkService();
+        ReflectionTestUtils.setField(bulkService, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(bulkService, "journalEntryServices", journalEntryServices);
+        ReflectionTestUtils.setField(bulkService, "journalChangeService", journalChangeService);
+        ReflectionTestUtils.setField(bulkService, "chunkSize", 2);
+        ReflectionTestUtils.setField(bulkService, "maxEntries", 4);
+    }
+
+    @Test
+    void importsEveryEntryInChunks() throws Exception {
+        BulkResult result = bulkService.importEntries("alice", body("[{\"title\":\"a\"},{\"title\":\"b\"},{\"title\":\"c\"}]"));
+
+        assertNull(result.getError());
+        assertEquals(3, result.getReceived());
+        assertEquals(3, result.getWritten());
+        verify(bulk, times(2)).execute();
+    }
+
+    @Test
+    void malformedRequestWritesNothingWhileNoChunkIsIn() {
+        assertThrows(IllegalArgumentException.class,
+                () -> bulkService.importEntries("alice", body("[{\"title\":\"a\"},5]")));
+        assertThrows(IllegalArgumentException.class,
+                () -> bulkService.importEntries("alice", body("{\"title\":\"a\"}")));
+        assertThrows(JsonProcessingException.class,
+                () -> bulkService.importEntries("alice", body("[{\"title\":\"a\"},{\"title\":")));
+        verify(bulk, never()).execute();
+    }
+
+    @Test
+    void malformedEntryAfterAWrittenChunkStopsWithAPartialResult() throws Exception {
+        BulkResult result = bulkService.importEntries("alice",
+                body("[{\"title\":\"a\"},{\"title\":\"b\"},{\"title\":\"c\"},\"oops\",{\"title\":\"d\"}]"));
+
+        // a and b were written as the first chunk, c before the bad element is written too, d never read
+        assertEquals(3, result.getReceived());
+        assertEquals(3, result.getWritten());
+        assertEquals(3, result.getItems().size());
+        assertTrue(result.getError().startsWith("stopped at entry 3"), result.getError());
+        verify(bulk, times(2)).execute();
+    }
+
+    @Test
+    void brokenJsonAfterAWrittenChunkStopsWithAPartialResult() throws Exception {
+        BulkResult result = bulkService.importEntries("alice",
+                body("[{\"title\":\"a\"},{\"title\":\"b\"},{\"title\":"));
+
+        assertEquals(2, result.getWritten());
+        assertTrue(result.getError().startsWith("stopped at entry 2"), result.getError());
+    }
+
+    @Test
+    void tooManyEntriesAfterAWrittenChunkStopsAtTheLimit() throws Exception {
+        BulkResult result = bulkService.importEntries("alice", body(
+                "[{\"title\":\"a\"},{\"title\":\"b\"},{\"title\":\"c\"},{\"title\":\"d\"},{\"title\":\"e\"}]"));
+
+        assertEquals(4, result.getWritten());
+        assertTrue(result.getError().contains("at most 4 entries"), result.getError());
+        verify(bulk, times(2)).execute();
+        verify(bulk, times(4)).insert(any(journalEntryModel.class));
+    }
+
+    @Test
+    void rejectedEntryIsSetAsideAndTheRestOfTheChunkWrittenAgain() throws Exception {
+        // first round: the second entry of the chunk is a duplicate key, the transaction is rolled back
+        BulkWriteError duplicate = new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 1);
+        when(bulk.execute()).thenThrow(new BulkOperationException("rejected", new MongoBulkWriteException(
+                BulkWriteResult.unacknowledged(), List.of(duplicate), null, new ServerAddress(), Set.of())))
+                .thenReturn(null);
+
+        BulkResult result = bulkService.importEntries("alice",
+                body("[{\"title\":\"a\"},{\"id\":\"" + new ObjectId() + "\",\"title\":\"b\"}]"));
+
+        assertEquals(1, result.getWritten());
+        assertEquals(BulkResult.CREATED, result.getItems().get(0).getStatus());
+        assertEquals(BulkResult.FAILED, result.getItems().get(1).getStatus());
+        // the second round only carries the first entry
+        verify(bulk, times(2)).execute();
+        verify(bulk, times(2)).insert(any(journalEntryModel.class));
+        verify(bulk, times(1)).upsert(any(Query.class), any(Update.class));
+    }
+
+    @Test
+    void failedWriteAfterAWrittenChunkStopsWithAPartialResult() throws Exception {
+        when(bulk.execute()).thenReturn(null)
+                .thenThrow(new DataAccessResourceFailureException("Timed out waiting for a server"));
+
+        BulkResult result = bulkService.importEntries("alice",
+                body("[{\"title\":\"a\"},{\"title\":\"b\"},{\"title\":\"c\"},{\"title\":\"d\"},{\"title\":\"e\"}]"));
+
+        // c and d were the chunk that failed, e is never read
+        assertEquals(4, result.getReceived());
+        assertEquals(2, result.getWritten());
+        assertEquals(BulkResult.FAILED, result.getItems().get(2).getStatus());
+        assertEquals(BulkResult.FAILED, result.getItems().get(3).getStatus());
+        assertTrue(result.getError().startsWith("stopped at entry 2"), result.getError());
+        verify(bulk, times(2)).execute();
+    }
+
+    @Test
+    void failedWriteOfTheFirstChunkFailsTheRequest() {
+        when(bulk.execute()).thenThrow(new DataAccessResourceFailureException("Timed out waiting for a server"));
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> bulkService.importEntries("alice", body("[{\"title\":\"a\"}]")));
+    }
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
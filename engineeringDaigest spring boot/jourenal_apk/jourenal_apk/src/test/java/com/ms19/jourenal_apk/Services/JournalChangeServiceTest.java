@@ -0,0 +1,94 @@
+package com.ms19.jourenal_apk.Services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ms19.jourenal_apk.Response.SyncPage;
+import com.ms19.jourenal_apk.entity.journalChangeModel;
+import com.ms19.jourenal_apk.entity.journalEntryModel;
+
+// the sync page pieces both stacks share, the queries themselves need Mongo
+class JournalChangeServiceTest {
+
+    private final ObjectId ownerId = new ObjectId();
+    private final JournalChangeService journalChangeService = new JournalChangeService();
+
+    JournalChangeServiceTest() {
+        ReflectionTestUtils.setField(journalChangeService, "tombstoneRetentionDays", 30);
+    }
+
+    @Test
+    void tokenIsSeqAndIssueTime() {
+        long now = System.currentTimeMillis();
+        JournalChangeService.SyncToken token = journalChangeService.parseToken("42." + now, now);
+        assertEquals(42, token.seq());
+        assertEquals(now, token.issuedAt());
+
+        assertThrows(IllegalArgumentException.class, () -> journalChangeService.parseToken("42", now));
+        assertThrows(IllegalArgumentException.class, () -> journalChangeService.parseToken("a.b", now));
+        long old = now - Duration.ofDays(31).toMillis();
+        assertThrows(IllegalStateException.class, () -> journalChangeService.parseToken("42." + old, now));
+    }
+
+    @Test
+    void pageStopsAtTheSizeAndKeepsTheIssueTimeMidSync() {
+        long now = System.currentTimeMillis();
+        JournalChangeService.SyncToken token = new JournalChangeService.SyncToken(10, now - 1000);
+        journalEntryModel first = entry(ownerId);
+        journalEntryModel second = entry(ownerId);
+        List<journalChangeModel> changes = List.of(change(first.getId(), 11, journalChangeModel.UPSERT),
+                change(second.getId(), 12, journalChangeModel.UPSERT),
+                change(new ObjectId(), 13, journalChangeModel.UPSERT));
+
+        // only the entries of the page are loaded
+        assertEquals(List.of(first.getId(), second.getId()), journalChangeService.upsertedIds(changes, 2));
+
+        SyncPage page = journalChangeService.page(ownerId, changes, 2, List.of(first, second), token, now);
+        assertTrue(page.isHasMore());
+        assertEquals(2, page.getChanges().size());
+        assertEquals("12." + token.issuedAt(), page.getNextToken());
+    }
+
+    @Test
+    void missingOrForeignEntryIsReportedAsDeleted() {
+        long now = System.currentTimeMillis();
+        JournalChangeService.SyncToken token = new JournalChangeService.SyncToken(0, now);
+        journalEntryModel foreign = entry(new ObjectId());
+        ObjectId gone = new ObjectId();
+        List<journalChangeModel> changes = List.of(change(foreign.getId(), 1, journalChangeModel.UPSERT),
+                change(gone, 2, journalChangeModel.UPSERT));
+
+        SyncPage page = journalChangeService.page(ownerId, changes, 10, List.of(foreign), token, now);
+        assertFalse(page.isHasMore());
+        assertEquals(journalChangeModel.DELETE, page.getChanges().get(0).getOp());
+        assertNull(page.getChanges().get(0).getEntry());
+        assertEquals(journalChangeModel.DELETE, page.getChanges().get(1).getOp());
+        assertEquals("2." + now, page.getNextToken());
+    }
+
+    private static journalEntryModel entry(ObjectId ownerId) {
+        journalEntryModel entry = new journalEntryModel();
+        entry.setId(new ObjectId());
+        entry.setOwnerId(ownerId);
+        return entry;
+    }
+
+    private journalChangeModel change(ObjectId entryId, long seq, String op) {
+        journalChangeModel change = new journalChangeModel();
+        change.setId(entryId);
+        change.setOwnerId(ownerId);
+        change.setSeq(seq);
+        change.setOp(op);
+        return change;
+    }
+}
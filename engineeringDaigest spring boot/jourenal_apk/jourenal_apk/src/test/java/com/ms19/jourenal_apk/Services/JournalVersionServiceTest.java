@@ -0,0 +1,69 @@
+package com.ms19.jourenal_apk.Services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.ms19.jourenal_apk.entity.journalVersionModel;
+
+class JournalVersionServiceTest {
+
+    private final JournalVersionService journalVersionService = new JournalVersionService();
+
+    @Test
+    void writeInTheCurrentSecondLeavesItToTheEtag() {
+        assertEquals(-1, journalVersionService.lastModified(version(1, LocalDateTime.now())));
+        assertEquals(-1, journalVersionService.lastModified(version(0, null)));
+    }
+
+    @Test
+    void settledWriteIsUsedAsLastModified() {
+        LocalDateTime updatedAt = LocalDateTime.now().minusSeconds(5);
+        assertEquals(updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                journalVersionService.lastModified(version(3, updatedAt)));
+    }
+
+    @Test
+    void secondWriteInTheSameSecondIsNotHiddenByIfModifiedSince() {
+        // the client read right after the first write and kept what it was given
+        LocalDateTime first = LocalDateTime.now();
+        journalVersionModel read = version(1, first);
+        MockHttpServletResponse firstResponse = new MockHttpServletResponse();
+        new ServletWebRequest(new MockHttpServletRequest(), firstResponse)
+                .checkNotModified(journalVersionService.etag(read), journalVersionService.lastModified(read));
+        assertEquals(null, firstResponse.getHeader("Last-Modified"));
+
+        // a second write a few ms later, the client only sends If-Modified-Since of a whole second
+        journalVersionModel now = version(2, first.plusNanos(5_000_000));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-Modified-Since", first.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / 1000 * 1000);
+        assertFalse(new ServletWebRequest(request, new MockHttpServletResponse())
+                .checkNotModified(journalVersionService.etag(now), journalVersionService.lastModified(now)));
+    }
+
+    @Test
+    void matchingEtagIsNotModifiedWhateverTheTime() {
+        journalVersionModel version = version(7, LocalDateTime.now());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", journalVersionService.etag(version));
+        assertTrue(new ServletWebRequest(request, new MockHttpServletResponse())
+                .checkNotModified(journalVersionService.etag(version), journalVersionService.lastModified(version)));
+    }
+
+    private static journalVersionModel version(long number, LocalDateTime updatedAt) {
+        journalVersionModel version = new journalVersionModel();
+        version.setId(new ObjectId());
+        version.setVersion(number);
+        version.setUpdatedAt(updatedAt);
+        return version;
+    }
+}
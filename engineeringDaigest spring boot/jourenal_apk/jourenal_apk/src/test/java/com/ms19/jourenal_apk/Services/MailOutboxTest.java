@@ -0,0 +1,231 @@
+package com.ms19.jourenal_apk.Services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.ms19.jourenal_apk.Repository.MailDeadLetterRepo;
+import com.ms19.jourenal_apk.Repository.MailOutboxRepo;
+import com.ms19.jourenal_apk.config.IoThreads;
+import com.ms19.jourenal_apk.entity.mailDeadLetterModel;
+import com.ms19.jourenal_apk.entity.outboxMailModel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+
+// Runs the outbox against a GreenMail SMTP server, with the stored outbox mocked. The sender in
+// front of it records every batch handed to JavaMailSender and can fail the first calls, the
+// way a dropped connection does.
+class MailOutboxTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private RecordingMailSender mailSender;
+    private MailDeadLetterRepo mailDeadLetterRepo;
+    private MailOutboxRepo mailOutboxRepo;
+    private MongoTemplate mongoTemplate;
+    private MailOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        mailSender = new RecordingMailSender();
+        mailSender.setHost("localhost");
+        mailSender.setPort(greenMail.getSmtp().getPort());
+        mailDeadLetterRepo = mock(MailDeadLetterRepo.class);
+        mailOutboxRepo = mock(MailOutboxRepo.class);
+        mongoTemplate = mock(MongoTemplate.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (outbox != null) {
+            outbox.stop();
+        }
+    }
+
+    @Test
+    void sendsQueuedMailInBatches() throws Exception {
+        startOutbox(5, 5, 50);
+        // hold the worker in the first send so the next mails pile up behind it
+        CountDownLatch release = new CountDownLatch(1);
+        mailSender.blockFirstSend(release);
+
+        List<String> ids = new ArrayList<>();
+        ids.add(outbox.enqueue("first@example.com", "digest", "body", false));
+        assertTrue(await(() -> mailSender.batches.size() == 1));
+        for (int i = 0; i < 10; i++) {
+            ids.add(outbox.enqueue("user" + i + "@example.com", "digest", "<p>body</p>", true));
+        }
+        release.countDown();
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 11));
+        assertTrue(await(() -> ids.stream().allMatch(id -> MailOutbox.SENT.equals(outbox.getStatus(id)))));
+        assertEquals(List.of(1, 5, 5), mailSender.batches);
+        // stored before being accepted, removed once per sent batch
+        verify(mailOutboxRepo, times(11)).insert(any(outboxMailModel.class));
+        verify(mailOutboxRepo, timeout(5000).times(3)).deleteAllById(any());
+        verify(mailDeadLetterRepo, never()).save(any());
+    }
+
+    @Test
+    void retriesWithBackoffUntilSmtpIsBack() throws Exception {
+        startOutbox(5, 20, 100);
+        mailSender.failFirst(2);
+
+        String id = outbox.enqueue("retry@example.com", "digest", "body", false);
+        assertTrue(await(() -> MailOutbox.RETRYING.equals(outbox.getStatus(id))));
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+        assertTrue(await(() -> MailOutbox.SENT.equals(outbox.getStatus(id))));
+        assertEquals(3, mailSender.attemptTimes.size());
+        // 100 ms before the second attempt, twice that before the third
+        long firstWait = mailSender.attemptTimes.get(1) - mailSender.attemptTimes.get(0);
+        long secondWait = mailSender.attemptTimes.get(2) - mailSender.attemptTimes.get(1);
+        assertTrue(firstWait >= 100, "first backoff was " + firstWait + " ms");
+        assertTrue(secondWait >= 200, "second backoff was " + secondWait + " ms");
+        verify(mailDeadLetterRepo, never()).save(any());
+        // each retry extends the lease of the stored copy
+        verify(mongoTemplate, times(2)).updateFirst(any(Query.class), any(Update.class), eq(outboxMailModel.class));
+    }
+
+    @Test
+    void deadLettersAfterMaxAttempts() throws Exception {
+        startOutbox(3, 20, 10);
+        mailSender.failFirst(Integer.MAX_VALUE);
+
+        String id = outbox.enqueue("dead@example.com", "digest", "body", false);
+
+        ArgumentCaptor<mailDeadLetterModel> deadLetter = ArgumentCaptor.forClass(mailDeadLetterModel.class);
+        verify(mailDeadLetterRepo, timeout(5000)).save(deadLetter.capture());
+        assertEquals(id, deadLetter.getValue().getTrackingId());
+        assertEquals("dead@example.com", deadLetter.getValue().getTo());
+        assertEquals(3, deadLetter.getValue().getAttempts());
+        assertNotNull(deadLetter.getValue().getLastError());
+        assertEquals(MailOutbox.DEAD_LETTER, outbox.getStatus(id));
+        assertEquals(3, mailSender.attemptTimes.size());
+        assertEquals(0, greenMail.getReceivedMessages().length);
+        verify(mailOutboxRepo, timeout(5000)).deleteAllById(List.of(id));
+    }
+
+    @Test
+    void sendsStoredMailWhoseLeaseRanOut() throws Exception {
+        outboxMailModel row = new outboxMailModel();
+        row.setId("left-behind");
+        row.setTo("recovered@example.com");
+        row.setSubject("digest");
+        row.setBody("body");
+        row.setAttempts(1);
+        row.setLeaseUntil(LocalDateTime.now().minusMinutes(1));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(outboxMailModel.class)))
+                .thenReturn(row, (outboxMailModel) null);
+
+        startOutbox(5, 20, 50);
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+        assertEquals("recovered@example.com", greenMail.getReceivedMessages()[0].getAllRecipients()[0].toString());
+        assertTrue(await(() -> MailOutbox.SENT.equals(outbox.getStatus("left-behind"))));
+        verify(mailOutboxRepo, timeout(5000)).deleteAllById(List.of("left-behind"));
+    }
+
+    private void startOutbox(int maxAttempts, int batchSize, long backoffMs) {
+        IoThreads ioThreads = new IoThreads();
+        ReflectionTestUtils.setField(ioThreads, "environment", new MockEnvironment());
+        ioThreads.init();
+
+        outbox = new MailOutbox();
+        ReflectionTestUtils.setField(outbox, "javaMailSender", mailSender);
+        ReflectionTestUtils.setField(outbox, "mailDeadLetterRepo", mailDeadLetterRepo);
+        ReflectionTestUtils.setField(outbox, "mailOutboxRepo", mailOutboxRepo);
+        ReflectionTestUtils.setField(outbox, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(outbox, "ioThreads", ioThreads);
+        ReflectionTestUtils.setField(outbox, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(outbox, "capacity", 100);
+        ReflectionTestUtils.setField(outbox, "workers", 1);
+        ReflectionTestUtils.setField(outbox, "batchSize", batchSize);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", maxAttempts);
+        ReflectionTestUtils.setField(outbox, "backoffMs", backoffMs);
+        ReflectionTestUtils.setField(outbox, "maxBackoffMs", 1000L);
+        ReflectionTestUtils.setField(outbox, "leaseMs", 60_000L);
+        ReflectionTestUtils.setField(outbox, "recoverMs", 60_000L);
+        outbox.start();
+    }
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return condition.getAsBoolean();
+    }
+
+    private static class RecordingMailSender extends JavaMailSenderImpl {
+
+        final List<Integer> batches = new CopyOnWriteArrayList<>();
+        final List<Long> attemptTimes = new CopyOnWriteArrayList<>();
+        private final AtomicInteger failuresLeft = new AtomicInteger();
+        private volatile CountDownLatch firstSendGate;
+
+        void failFirst(int sends) {
+            failuresLeft.set(sends);
+        }
+
+        void blockFirstSend(CountDownLatch gate) {
+            firstSendGate = gate;
+        }
+
+        @Override
+        public void send(MimeMessage... mimeMessages) {
+            attemptTimes.add(System.currentTimeMillis());
+            batches.add(mimeMessages.length);
+            CountDownLatch gate = firstSendGate;
+            if (gate != null) {
+                firstSendGate = null;
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (failuresLeft.getAndDecrement() > 0) {
+                throw new MailSendException("Mail server connection failed");
+            }
+            super.send(mimeMessages);
+        }
+    }
+}
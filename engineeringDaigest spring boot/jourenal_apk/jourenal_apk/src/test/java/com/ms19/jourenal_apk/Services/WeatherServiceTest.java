@@ -0,0 +1,213 @@
+package com.ms19.jourenal_apk.Services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ms19.jourenal_apk.JourenalApkApplication;
+import com.ms19.jourenal_apk.config.IoThreads;
+import com.ms19.jourenal_apk.weatherApiRes.WeatherApiRes;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Runs the weather cache against a stub weatherstack on a local port. Every answer carries
+// the number of the upstream call as its temperature, so a test can tell a cached value
+// from a fresh one.
+class WeatherServiceTest {
+
+    private HttpServer upstream;
+    private ExecutorService upstreamThreads;
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final AtomicLong upstreamDelayMs = new AtomicLong();
+    private volatile CountDownLatch upstreamGate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WeatherService weatherService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstreamThreads = Executors.newCachedThreadPool();
+        upstream.setExecutor(upstreamThreads);
+        upstream.createContext("/current", this::answer);
+        upstream.start();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (weatherService != null) {
+            weatherService.shutdown();
+        }
+        upstream.stop(0);
+        upstreamThreads.shutdownNow();
+    }
+
+    @Test
+    void servesCachedWeatherUntilRefresh() {
+        startService(600, 3000, 5000);
+
+        WeatherApiRes first = weatherService.getWeather("Pune");
+        WeatherApiRes second = weatherService.getWeather("pune");
+
+        assertNotNull(first);
+        assertEquals(1, first.getCurrent().getTemperature());
+        assertEquals(1, second.getCurrent().getTemperature());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void concurrentMissesShareOneUpstreamCall() throws Exception {
+        startService(600, 3000, 5000);
+        upstreamGate = new CountDownLatch(1);
+
+        int callers = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch started = new CountDownLatch(callers);
+        List<Future<WeatherApiRes>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(pool.submit(() -> {
+                started.countDown();
+                return weatherService.getWeather("Mumbai");
+            }));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // let every caller reach the cache before the one upstream call answers
+        Thread.sleep(200);
+        upstreamGate.countDown();
+
+        for (Future<WeatherApiRes> result : results) {
+            assertEquals(1, result.get(5, TimeUnit.SECONDS).getCurrent().getTemperature());
+        }
+        pool.shutdown();
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void staleValueIsServedWhileRefreshing() throws Exception {
+        startService(1, 3000, 5000);
+        assertEquals(1, weatherService.getWeather("Delhi").getCurrent().getTemperature());
+
+        Thread.sleep(1100);
+        upstreamDelayMs.set(300);
+        long start = System.nanoTime();
+        WeatherApiRes stale = weatherService.getWeather("Delhi");
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // the old value right away, the refresh runs in the background
+        assertEquals(1, stale.getCurrent().getTemperature());
+        assertTrue(tookMs < 200, "stale read took " + tookMs + " ms");
+        assertTrue(awaitTemperature("Delhi", 2));
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void callerStopsWaitingAfterMaxWait() throws Exception {
+        startService(600, 3000, 100);
+        upstreamDelayMs.set(500);
+
+        long start = System.nanoTime();
+        assertNull(weatherService.getWeather("Chennai"));
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(tookMs < 400, "caller waited " + tookMs + " ms");
+        assertEquals(1.0, meterRegistry.counter("journal.weather.not_ready").count());
+        // the upstream call went on and a later caller gets its answer
+        assertTrue(awaitTemperature("Chennai", 1));
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void upstreamReadTimeoutIsNotCached() throws Exception {
+        startService(600, 300, 5000);
+        upstreamDelayMs.set(2000);
+
+        long start = System.nanoTime();
+        assertNull(weatherService.getWeather("Kolkata"));
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(tookMs < 1500, "read timeout took " + tookMs + " ms");
+        assertEquals(1, meterRegistry.timer("journal.weather.request", "outcome", "error").count());
+        // a failed fetch is dropped (asynchronously), then the next caller asks upstream again
+        upstreamDelayMs.set(0);
+        assertTrue(awaitTemperature("Kolkata", 2));
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    private void startService(long refreshAfterSeconds, long readTimeoutMs, long maxWaitMs) {
+        IoThreads ioThreads = new IoThreads();
+        ReflectionTestUtils.setField(ioThreads, "environment", new MockEnvironment());
+        ioThreads.init();
+
+        weatherService = new WeatherService();
+        ReflectionTestUtils.setField(weatherService, "apiKey", "test-key");
+        ReflectionTestUtils.setField(weatherService, "API",
+                "http://localhost:" + upstream.getAddress().getPort() + "/current?access_key=API_KEY&query=CITY");
+        ReflectionTestUtils.setField(weatherService, "refreshAfterSeconds", refreshAfterSeconds);
+        ReflectionTestUtils.setField(weatherService, "expireAfterSeconds", 3600L);
+        ReflectionTestUtils.setField(weatherService, "maxWaitMs", maxWaitMs);
+        ReflectionTestUtils.setField(weatherService, "restTemplate",
+                new JourenalApkApplication().restTemplate(2000, readTimeoutMs));
+        ReflectionTestUtils.setField(weatherService, "ioThreads", ioThreads);
+        ReflectionTestUtils.setField(weatherService, "meterRegistry", meterRegistry);
+        weatherService.init();
+    }
+
+    private boolean awaitTemperature(String city, int temperature) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            WeatherApiRes weather = weatherService.getWeather(city);
+            if (weather != null && weather.getCurrent().getTemperature() == temperature) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        int call = upstreamCalls.incrementAndGet();
+        try {
+            CountDownLatch gate = upstreamGate;
+            if (gate != null) {
+                gate.await(5, TimeUnit.SECONDS);
+            }
+            Thread.sleep(upstreamDelayMs.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String city = exchange.getRequestURI().getQuery().replaceAll(".*query=", "");
+        byte[] body = ("{\"location\":{\"name\":\"" + city + "\"},\"current\":{\"temperature\":" + call + "}}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.sendResponseHeaders(200, body.length);
+            out.write(body);
+        } catch (IOException e) {
+            // the client gave up on this call
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.ms19.jourenal_apk.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+    @Test
+    void keysThatWerePutAreAlwaysFound() {
+        BloomFilter filter = BloomFilter.create(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.put("jti-" + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("jti-" + i));
+        }
+    }
+
+    @Test
+    void puttingAKeyAgainIsNotAnInsertion() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+        assertTrue(filter.put("a"));
+        assertFalse(filter.put("a"));
+        assertTrue(filter.put("b"));
+        // what a sync overlap does: the same ids read again
+        filter.put("a");
+        filter.put("b");
+        assertEquals(2, filter.insertions());
+    }
+
+    @Test
+    void falsePositivesStayNearTheConfiguredRate() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("revoked-" + i);
+        }
+        int hits = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                hits++;
+            }
+        }
+        assertTrue(hits < 300, hits + " false positives in 10000");
+    }
+}
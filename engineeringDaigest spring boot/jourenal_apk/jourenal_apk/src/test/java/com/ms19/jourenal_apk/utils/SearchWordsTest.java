@@ -0,0 +1,45 @@
+package com.ms19.jourenal_apk.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+class SearchWordsTest {
+
+    @Test
+    void wordsAreLowercasedDistinctAndSplitOnPunctuation() {
+        assertEquals(List.of("hello", "world", "it", "s", "café", "2024"),
+                SearchWords.of("Hello, WORLD! hello... it's Café 2024"));
+        assertEquals(List.of(), SearchWords.of("  --  "));
+        assertEquals(List.of(), SearchWords.of(null));
+    }
+
+    @Test
+    void longWordsAreCutTheSameWayForEntriesAndQueries() {
+        String longWord = "a".repeat(SearchWords.MAX_WORD_LENGTH + 10);
+        assertEquals(List.of("a".repeat(SearchWords.MAX_WORD_LENGTH)), SearchWords.of(longWord));
+    }
+
+    @Test
+    void prefixIsAnAnchoredRegexOnTheWordFields() {
+        ObjectId owner = new ObjectId();
+        Document single = SearchWords.prefixCriteria(owner, "Jour").getCriteriaObject();
+        assertEquals(owner, single.get("ownerId"));
+        List<?> branches = single.getList("$or", Document.class);
+        assertEquals("^jour", ((Document) branches.get(0)).get("titleWords").toString());
+        assertEquals("^jour", ((Document) branches.get(1)).get("contentWords").toString());
+
+        Document multi = SearchWords.prefixCriteria(owner, "new jour").getCriteriaObject();
+        assertEquals(2, multi.getList("$and", Document.class).size());
+    }
+
+    @Test
+    void queryWithoutLettersOrDigitsIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SearchWords.prefixCriteria(new ObjectId(), "?!"));
+    }
+}